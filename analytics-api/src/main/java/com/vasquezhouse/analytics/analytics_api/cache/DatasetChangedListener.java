@@ -0,0 +1,25 @@
+package com.vasquezhouse.analytics.analytics_api.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Empties the {@link ResultCache} when the manager reports that an ingestion job completed. Every instance of the API
+ * has its own queue bound to the dataset changed exchange, see {@code RabbitConfig}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DatasetChangedListener {
+
+    private final ResultCache resultCache;
+
+    // the body is the id of the job execution that changed the dataset
+    @RabbitListener(queues = "#{datasetChangedQueue.name}")
+    public void datasetChanged(String jobExecutionId) {
+        log.info(" >>> dataset changed by job execution [{}], emptying the result cache", jobExecutionId);
+        resultCache.invalidateAll();
+    }
+}
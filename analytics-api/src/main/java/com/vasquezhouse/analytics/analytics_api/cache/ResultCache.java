@@ -0,0 +1,126 @@
+package com.vasquezhouse.analytics.analytics_api.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of query results, bounded in size with least recently used eviction, and in age.
+ * <p>
+ * The analytics data only changes when an ingestion job completes, the manager then publishes a dataset changed event
+ * that empties the cache, see {@link DatasetChangedListener}. The time to live bounds how stale a result can get when
+ * an event is missed. Concurrent requests of the same missing key wait for a single load.
+ * <p>
+ * Hits, misses and evictions are counted in the {@code cache.gets} and {@code cache.evictions} meters of the
+ * {@value #NAME} cache.
+ */
+@Slf4j
+@Component
+public class ResultCache {
+
+    static final String NAME = "results";
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<Object, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ResultCache(@Value("${app.result-cache.enabled:true}") boolean enabled,
+                       @Value("${app.result-cache.max-size:1000}") int maxSize,
+                       @Value("${app.result-cache.ttl:10m}") Duration ttl,
+                       MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = Counter.builder("cache.gets").tag("cache", NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", NAME).register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > ResultCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("cache.size", this, ResultCache::size).tag("cache", NAME).register(meterRegistry);
+    }
+
+    /**
+     * The cached result of the key, or the result of the loader, cached. Keys are compared with {@code equals}, they
+     * must hold every argument the result depends on.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Entry entry;
+        CompletableFuture<Object> load = null;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+            } else {
+                misses.increment();
+                load = new CompletableFuture<>();
+                entry = new Entry(load, System.nanoTime());
+                entries.put(key, entry);
+            }
+        }
+        if (load == null) {
+            return (T) join(entry.result); // may still be loading
+        }
+
+        // emptying the cache meanwhile also drops this entry, the result is returned but not kept
+        try {
+            T result = loader.get();
+            load.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            throw e;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        log.debug(" >>> result cache emptied, [{}] results dropped", entries.size());
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private record Entry(CompletableFuture<Object> result, long loadedAt) {
+    }
+}
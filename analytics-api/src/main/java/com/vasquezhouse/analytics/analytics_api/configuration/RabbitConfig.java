@@ -0,0 +1,34 @@
+package com.vasquezhouse.analytics.analytics_api.configuration;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfig {
+
+    @Value("${app.dataset-changed-exchange}")
+    private String datasetChangedExchangeName;
+
+    @Bean
+    public FanoutExchange datasetChangedExchange() {
+        return new FanoutExchange(datasetChangedExchangeName);
+    }
+
+    // one per instance, deleted when it disconnects: every instance gets every event
+    @Bean
+    public Queue datasetChangedQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding datasetChangedBinding() {
+        return BindingBuilder.bind(datasetChangedQueue())
+            .to(datasetChangedExchange());
+    }
+}
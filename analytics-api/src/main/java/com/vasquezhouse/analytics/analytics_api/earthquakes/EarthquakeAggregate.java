@@ -0,0 +1,39 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes;
+
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeStats;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals of a set of earthquakes that add up across disjoint sets, e.g. rollup buckets and the rows around them.
+ */
+public record EarthquakeAggregate(long count,
+                                  long magnitudeCount,
+                                  BigDecimal magnitudeSum,
+                                  BigDecimal maxMagnitude,
+                                  long tsunamiCount) {
+
+    public static final EarthquakeAggregate EMPTY = new EarthquakeAggregate(0, 0, BigDecimal.ZERO, null, 0);
+
+    public EarthquakeAggregate plus(EarthquakeAggregate other) {
+        BigDecimal max = maxMagnitude == null || (other.maxMagnitude != null && other.maxMagnitude.compareTo(maxMagnitude) > 0)
+            ? other.maxMagnitude
+            : maxMagnitude;
+        return new EarthquakeAggregate(
+            count + other.count,
+            magnitudeCount + other.magnitudeCount,
+            magnitudeSum.add(other.magnitudeSum),
+            max,
+            tsunamiCount + other.tsunamiCount);
+    }
+
+    // earthquakes without magnitude are counted but not averaged
+    public EarthquakeStats toStats() {
+        return EarthquakeStats.builder()
+            .count(count)
+            .averageMagnitude(magnitudeCount == 0 ? 0.0 : magnitudeSum.doubleValue() / magnitudeCount)
+            .maxMagnitude(maxMagnitude == null ? 0.0 : maxMagnitude.doubleValue())
+            .tsunamiCount(tsunamiCount)
+            .build();
+    }
+}
@@ -1,25 +1,32 @@
 package com.vasquezhouse.analytics.analytics_api.earthquakes;
 
+import com.vasquezhouse.analytics.analytics_api.cache.ResultCache;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.CountMode;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeFilter;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeStats;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortInput;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.model.Earthquake;
 import com.vasquezhouse.analytics.analytics_api.relay.Connection;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 
+import java.time.ZoneOffset;
+
 @Controller
 @RequiredArgsConstructor
 public class EarthquakeController {
 
     private final EarthquakeService earthquakeService;
+    private final ResultCache resultCache;
 
     @QueryMapping
-    public int earthquakesCount() {
+    public int earthquakesCount(@Argument CountMode countMode) {
         EarthquakeFilter noopFilter = new EarthquakeFilter();
-        return (int) earthquakeService.getStats(noopFilter).getCount();
+        return resultCache.get(new CountQuery(countMode),
+            () -> (int) earthquakeService.getCount(noopFilter, countMode));
     }
 
     @QueryMapping
@@ -29,13 +36,50 @@ public class EarthquakeController {
         @Argument Integer first,
         @Argument Integer last,
         @Argument String after,
-        @Argument String before
+        @Argument String before,
+        @Argument CountMode countMode,
+        DataFetchingFieldSelectionSet selectionSet
     ) {
-        return earthquakeService.getEarthquakes(filter, sort, first, last, after, before);
+        CountMode requestedCountMode = !selectionSet.contains("totalCount") ? null
+            : countMode == null ? CountMode.EXACT : countMode;
+        EarthquakesQuery query = new EarthquakesQuery(normalize(filter), sort, first, last, after, before, requestedCountMode);
+        return resultCache.get(query,
+            () -> earthquakeService.getEarthquakes(filter, sort, first, last, after, before, requestedCountMode));
     }
     
     @QueryMapping
     public EarthquakeStats earthquakeStats(@Argument EarthquakeFilter filter) {
-        return earthquakeService.getStats(filter);
+        return resultCache.get(new StatsQuery(normalize(filter)), () -> earthquakeService.getStats(filter));
+    }
+
+    // the same instants in any time zone are the same query
+    private static EarthquakeFilter normalize(EarthquakeFilter filter) {
+        EarthquakeFilter normalized = new EarthquakeFilter();
+        if (filter != null) {
+            normalized.setStartTime(filter.getStartTime() == null ? null : filter.getStartTime().withZoneSameInstant(ZoneOffset.UTC));
+            normalized.setEndTime(filter.getEndTime() == null ? null : filter.getEndTime().withZoneSameInstant(ZoneOffset.UTC));
+            normalized.setMinMagnitude(filter.getMinMagnitude());
+            normalized.setMaxMagnitude(filter.getMaxMagnitude());
+            normalized.setCountry(filter.getCountry());
+            normalized.setTsunami(filter.getTsunami());
+        }
+        return normalized;
+    }
+
+    // result cache keys, every argument the result depends on
+
+    private record CountQuery(CountMode countMode) {
+    }
+
+    private record EarthquakesQuery(EarthquakeFilter filter,
+                                    SortInput sort,
+                                    Integer first,
+                                    Integer last,
+                                    String after,
+                                    String before,
+                                    CountMode countMode) {
+    }
+
+    private record StatsQuery(EarthquakeFilter filter) {
     }
 }
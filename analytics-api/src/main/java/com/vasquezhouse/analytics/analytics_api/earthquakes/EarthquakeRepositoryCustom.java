@@ -0,0 +1,35 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes;
+
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeFilter;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.Earthquake;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.EarthquakeRollup;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Queries of {@link EarthquakeRepository} that Spring Data can't derive, implemented in
+ * {@link EarthquakeRepositoryCustomImpl}.
+ */
+public interface EarthquakeRepositoryCustom {
+
+    /**
+     * Aggregates the earthquakes matching the specification in the database, in a single query.
+     */
+    EarthquakeAggregate aggregate(Specification<Earthquake> spec);
+
+    /**
+     * Adds up the rollups of the buckets starting in {@code [from, to)}, unbounded when null, of a country or of all of
+     * them when null.
+     */
+    EarthquakeAggregate aggregateRollups(Class<? extends EarthquakeRollup> rollupType,
+                                         ZonedDateTime from,
+                                         ZonedDateTime to,
+                                         String country);
+
+    /**
+     * Number of earthquakes matching the filter as estimated by the query planner from the table statistics, without
+     * reading the rows. Only as accurate as the last {@code ANALYZE}.
+     */
+    long estimateCount(EarthquakeFilter filter);
+}
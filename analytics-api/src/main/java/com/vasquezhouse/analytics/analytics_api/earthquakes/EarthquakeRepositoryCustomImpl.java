@@ -0,0 +1,139 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeFilter;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.Earthquake;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.EarthquakeRollup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EarthquakeRepositoryCustomImpl implements EarthquakeRepositoryCustom {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EarthquakeRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public EarthquakeAggregate aggregate(Specification<Earthquake> spec) {
+        // the hibernate builder renders count(*) filter (where ...), the plain JPA one has no aggregate filter
+        HibernateCriteriaBuilder builder = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Earthquake> root = query.from(Earthquake.class);
+        Expression<BigDecimal> magnitude = root.get("magnitude");
+
+        Expression<Long> count = builder.count(root);
+        Expression<Long> magnitudeCount = builder.count(magnitude);
+        Expression<BigDecimal> magnitudeSum = builder.sum(magnitude);
+        Expression<BigDecimal> maxMagnitude = builder.max(magnitude);
+        Expression<Long> tsunamiCount = builder.count(root, builder.isTrue(root.get("tsunami")));
+        query.multiselect(count, magnitudeCount, magnitudeSum, maxMagnitude, tsunamiCount);
+
+        Predicate predicate = spec.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        Tuple result = entityManager.createQuery(query).getSingleResult();
+        return toAggregate(result.get(count), result.get(magnitudeCount), result.get(magnitudeSum),
+            result.get(maxMagnitude), result.get(tsunamiCount));
+    }
+
+    @Override
+    public EarthquakeAggregate aggregateRollups(Class<? extends EarthquakeRollup> rollupType,
+                                                ZonedDateTime from,
+                                                ZonedDateTime to,
+                                                String country) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<? extends EarthquakeRollup> root = query.from(rollupType);
+
+        Expression<Long> count = builder.sum(root.<Long>get("earthquakeCount"));
+        Expression<Long> magnitudeCount = builder.sum(root.<Long>get("magnitudeCount"));
+        Expression<BigDecimal> magnitudeSum = builder.sum(root.<BigDecimal>get("magnitudeSum"));
+        Expression<BigDecimal> maxMagnitude = builder.max(root.<BigDecimal>get("maxMagnitude"));
+        Expression<Long> tsunamiCount = builder.sum(root.<Long>get("tsunamiCount"));
+        query.multiselect(count, magnitudeCount, magnitudeSum, maxMagnitude, tsunamiCount);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (from != null) {
+            predicates.add(builder.greaterThanOrEqualTo(root.get("bucket"), from));
+        }
+        if (to != null) {
+            predicates.add(builder.lessThan(root.get("bucket"), to));
+        }
+        if (country != null) {
+            predicates.add(builder.equal(root.get("country"), country));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        Tuple result = entityManager.createQuery(query).getSingleResult();
+        return toAggregate(result.get(count), result.get(magnitudeCount), result.get(magnitudeSum),
+            result.get(maxMagnitude), result.get(tsunamiCount));
+    }
+
+    @Override
+    public long estimateCount(EarthquakeFilter filter) {
+        // same predicates as the filter specification, in SQL since only the query text can be explained
+        StringBuilder sql = new StringBuilder("EXPLAIN (FORMAT JSON) SELECT 1 FROM earthquakes WHERE true");
+        List<Object> parameters = new ArrayList<>();
+        if (filter != null) {
+            addCondition(sql, parameters, "time >= ?", filter.getStartTime() == null ? null : filter.getStartTime().toOffsetDateTime());
+            addCondition(sql, parameters, "time <= ?", filter.getEndTime() == null ? null : filter.getEndTime().toOffsetDateTime());
+            addCondition(sql, parameters, "magnitude >= ?", filter.getMinMagnitude());
+            addCondition(sql, parameters, "magnitude <= ?", filter.getMaxMagnitude());
+            addCondition(sql, parameters, "country = ?", filter.getCountry());
+            addCondition(sql, parameters, "tsunami = ?", filter.getTsunami());
+        }
+
+        String plan = jdbcTemplate.queryForObject(sql.toString(), String.class, parameters.toArray());
+        try {
+            return OBJECT_MAPPER.readTree(plan).path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unexpected query plan: " + plan, e);
+        }
+    }
+
+    // sums are null without any row
+    private static EarthquakeAggregate toAggregate(Long count,
+                                                   Long magnitudeCount,
+                                                   BigDecimal magnitudeSum,
+                                                   BigDecimal maxMagnitude,
+                                                   Long tsunamiCount) {
+        return new EarthquakeAggregate(
+            count == null ? 0 : count,
+            magnitudeCount == null ? 0 : magnitudeCount,
+            magnitudeSum == null ? BigDecimal.ZERO : magnitudeSum,
+            maxMagnitude,
+            tsunamiCount == null ? 0 : tsunamiCount);
+    }
+
+    private static void addCondition(StringBuilder sql, List<Object> parameters, String condition, Object value) {
+        if (value != null) {
+            sql.append(" AND ").append(condition);
+            parameters.add(value);
+        }
+    }
+}
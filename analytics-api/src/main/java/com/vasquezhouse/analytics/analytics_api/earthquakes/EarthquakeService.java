@@ -1,20 +1,31 @@
 package com.vasquezhouse.analytics.analytics_api.earthquakes;
 
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.CountMode;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeFilter;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeStats;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortDirection;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortField;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortInput;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.DailyEarthquakeRollup;
 import com.vasquezhouse.analytics.analytics_api.earthquakes.model.Earthquake;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.EarthquakeRollup;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.HourlyEarthquakeRollup;
 import com.vasquezhouse.analytics.analytics_api.relay.Connection;
 import com.vasquezhouse.analytics.analytics_api.relay.ConnectionCursor;
 import com.vasquezhouse.analytics.analytics_api.relay.Edge;
 import com.vasquezhouse.analytics.analytics_api.relay.PageInfo;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -34,50 +45,34 @@ public class EarthquakeService {
         Integer first,
         Integer last,
         String after,
-        String before
+        String before,
+        CountMode countMode
     ) {
         int limit = calculateLimit(first, last);
 
         Specification<Earthquake> filterSpec = createSpecification(filter);
-        Sort dataSort = createSort(sort);
-        long totalCount = repository.count(filterSpec);
+        // only counted when asked for, the count can take longer than the page itself
+        long totalCount = countMode == null ? 0 : getCount(filter, countMode);
         int effectiveLimit = limit + 1; // to see if there is another page
 
-        List<Earthquake> earthquakes;
-        
-        if (after != null) {
-            Integer afterId = ConnectionCursor.fromCursor(after);
-            Specification<Earthquake> afterSpec = filterSpec
-                .and((root, query, cb) -> 
-                    cb.greaterThan(root.get("id"), afterId));
-            
-            earthquakes = repository
-                .findAll(afterSpec, dataSort)
-                .stream()
-                .limit(effectiveLimit)
-                .toList();
-        } else if (before != null) {
-            Integer beforeId = ConnectionCursor.fromCursor(before);
-            Specification<Earthquake> beforeSpec = filterSpec
-                .and((root, query, cb) ->
-                    cb.lessThan(root.get("id"), beforeId));
-
-            earthquakes = repository
-                .findAll(beforeSpec, dataSort.reverse())
-                .stream()
-                .limit(effectiveLimit)
-                .toList();
-            
-            if (last != null) {
-                earthquakes = new ArrayList<>(earthquakes);
-                Collections.reverse(earthquakes);
+        // pages are read in key order, the sort direction reversed when reading the last rows
+        boolean ascending = (sort.getDirection() == SortDirection.ASC) == (last == null);
+        ConnectionCursor.Position afterPosition = after == null ? null : decodeCursor(after, sort);
+        ConnectionCursor.Position beforePosition = before == null ? null : decodeCursor(before, sort);
+        ConnectionCursor.Position lowerBound = sort.getDirection() == SortDirection.ASC ? afterPosition : beforePosition;
+        ConnectionCursor.Position upperBound = sort.getDirection() == SortDirection.ASC ? beforePosition : afterPosition;
+
+        List<Earthquake> earthquakes = new ArrayList<>(effectiveLimit);
+        for (Specification<Earthquake> segmentSpec : seekSegments(sort.getField(), ascending, lowerBound, upperBound)) {
+            if (earthquakes.size() == effectiveLimit) {
+                break;
             }
-        } else {
-            earthquakes = repository
-                .findAll(filterSpec, dataSort)
-                .stream()
-                .limit(effectiveLimit)
-                .toList();
+            Sort keyOrder = Sort.by(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, sortProperty(sort.getField()), "id");
+            int remaining = effectiveLimit - earthquakes.size();
+            earthquakes.addAll(repository.findBy(filterSpec.and(segmentSpec), query -> query
+                .sortBy(keyOrder)
+                .limit(remaining)
+                .all()));
         }
         
         boolean hasMore = earthquakes.size() > limit;
@@ -85,18 +80,22 @@ public class EarthquakeService {
         if (hasMore) {
             earthquakes = earthquakes.subList(0, limit);
         }
+        if (last != null) {
+            earthquakes = new ArrayList<>(earthquakes);
+            Collections.reverse(earthquakes);
+        }
 
         List<Edge<Earthquake>> edges = earthquakes
             .stream()
             .map(earthquake -> Edge.<Earthquake>builder()
-                .cursor(ConnectionCursor.toCursor(earthquake.getId()))
+                .cursor(ConnectionCursor.toCursor(sort.getField().name(), earthquake.getId(), sortValue(sort.getField(), earthquake)))
                 .node(earthquake)
                 .build()
             )
             .toList();
 
         PageInfo pageInfo = PageInfo.builder()
-            .hasNextPage(hasMore && first != null)
+            .hasNextPage(hasMore && last == null)
             .hasPreviousPage(hasMore && last != null)
             .startCursor(edges.isEmpty() ? null : edges.getFirst().getCursor())
             .endCursor(edges.isEmpty() ? null : edges.getLast().getCursor())
@@ -109,34 +108,81 @@ public class EarthquakeService {
             .build();
     }
     
+    /**
+     * Aggregates the earthquakes of the filter from the daily and hourly rollups within its time bounds, and from the
+     * rows of the partial hours at its edges, so a range of years reads a few rollup rows per day. Rollups are only
+     * kept per country, filters on magnitude or tsunami aggregate the rows.
+     */
     public EarthquakeStats getStats(EarthquakeFilter filter) {
-        Specification<Earthquake> filterSpec = createSpecification(filter);
-        List<Earthquake> earthquakes = repository.findAll(filterSpec);
-
-        double avgMagnitude = earthquakes.stream()
-            .filter(earthquake -> earthquake.getMagnitude() != null)
-            .mapToDouble(earthquake -> earthquake.getMagnitude().doubleValue())
-            .average()
-            .orElse(0.0);
-
-        double maxMagnitude = earthquakes.stream()
-            .filter(earthquake -> earthquake.getMagnitude() != null)
-            .mapToDouble(earthquake -> earthquake.getMagnitude().doubleValue())
-            .max()
-            .orElse(0.0);
-
-        long tsunamiCount = earthquakes.stream()
-            .filter(Earthquake::getTsunami)
-            .count();
-        
-        return EarthquakeStats.builder()
-            .count(earthquakes.size())
-            .averageMagnitude(avgMagnitude)
-            .maxMagnitude(maxMagnitude)
-            .tsunamiCount(tsunamiCount)
-            .build();
+        if (filter.getMinMagnitude() != null || filter.getMaxMagnitude() != null || filter.getTsunami() != null) {
+            return repository.aggregate(createSpecification(filter)).toStats();
+        }
+
+        Instant start = filter.getStartTime() == null ? null : filter.getStartTime().toInstant();
+        Instant end = filter.getEndTime() == null ? null : filter.getEndTime().toInstant(); // inclusive
+        String country = filter.getCountry();
+
+        // whole hours within the bounds
+        Instant hoursFrom = start == null ? null : ceil(start, ChronoUnit.HOURS);
+        Instant hoursTo = end == null ? null : end.truncatedTo(ChronoUnit.HOURS);
+        if (hoursFrom != null && hoursTo != null && !hoursFrom.isBefore(hoursTo)) {
+            return repository.aggregate(createSpecification(filter)).toStats();
+        }
+
+        EarthquakeAggregate aggregate = EarthquakeAggregate.EMPTY;
+        if (start != null && start.isBefore(hoursFrom)) {
+            aggregate = aggregate.plus(repository.aggregate(timeRange(country, start, hoursFrom, false)));
+        }
+        if (end != null) {
+            aggregate = aggregate.plus(repository.aggregate(timeRange(country, hoursTo, end, true)));
+        }
+
+        // whole days within the whole hours, the hours around them from the hourly rollups
+        Instant daysFrom = hoursFrom == null ? null : ceil(hoursFrom, ChronoUnit.DAYS);
+        Instant daysTo = hoursTo == null ? null : hoursTo.truncatedTo(ChronoUnit.DAYS);
+        if (daysFrom != null && daysTo != null && !daysFrom.isBefore(daysTo)) {
+            return aggregate.plus(rollups(HourlyEarthquakeRollup.class, hoursFrom, hoursTo, country)).toStats();
+        }
+        if (hoursFrom != null && hoursFrom.isBefore(daysFrom)) {
+            aggregate = aggregate.plus(rollups(HourlyEarthquakeRollup.class, hoursFrom, daysFrom, country));
+        }
+        aggregate = aggregate.plus(rollups(DailyEarthquakeRollup.class, daysFrom, daysTo, country));
+        if (hoursTo != null && daysTo.isBefore(hoursTo)) {
+            aggregate = aggregate.plus(rollups(HourlyEarthquakeRollup.class, daysTo, hoursTo, country));
+        }
+        return aggregate.toStats();
+    }
+
+    public long getCount(EarthquakeFilter filter, CountMode countMode) {
+        return countMode == CountMode.ESTIMATED
+            ? repository.estimateCount(filter)
+            : repository.count(createSpecification(filter));
     }
     
+    private EarthquakeAggregate rollups(Class<? extends EarthquakeRollup> rollupType, Instant from, Instant to, String country) {
+        return repository.aggregateRollups(rollupType,
+            from == null ? null : from.atZone(ZoneOffset.UTC),
+            to == null ? null : to.atZone(ZoneOffset.UTC),
+            country);
+    }
+
+    private static Specification<Earthquake> timeRange(String country, Instant from, Instant to, boolean toInclusive) {
+        return (root, query, builder) -> {
+            Expression<ZonedDateTime> time = root.get("time");
+            ZonedDateTime lower = from.atZone(ZoneOffset.UTC);
+            ZonedDateTime upper = to.atZone(ZoneOffset.UTC);
+            Predicate range = builder.and(
+                builder.greaterThanOrEqualTo(time, lower),
+                toInclusive ? builder.lessThanOrEqualTo(time, upper) : builder.lessThan(time, upper));
+            return country == null ? range : builder.and(range, builder.equal(root.get("country"), country));
+        };
+    }
+
+    private static Instant ceil(Instant instant, ChronoUnit unit) {
+        Instant truncated = instant.truncatedTo(unit);
+        return truncated.equals(instant) ? instant : truncated.plus(1, unit);
+    }
+
     private Specification<Earthquake> createSpecification(EarthquakeFilter filter) {
         return (root, query, builder) -> {
             List<Predicate> predicates = new ArrayList<>();
@@ -166,11 +212,98 @@ public class EarthquakeService {
         };
     }
     
-    private Sort createSort(SortInput sort) {
-        return Sort.by(
-            sort.getDirection() == SortDirection.ASC ? Sort.Direction.ASC : Sort.Direction.DESC,
-            sort.getField().toString().toLowerCase()
-        );
+    /**
+     * Keyset conditions of the rows between the bounds, in key order: by sort value with nulls after every value, then
+     * by id. Rows with and without a sort value are read by separate queries, so each one is a range scan of the
+     * (sort column, id) index; the rows without a value are only queried when the first segment doesn't fill the page.
+     */
+    private List<Specification<Earthquake>> seekSegments(SortField field,
+                                                         boolean ascending,
+                                                         ConnectionCursor.Position lowerBound,
+                                                         ConnectionCursor.Position upperBound) {
+        String property = sortProperty(field);
+        List<Specification<Earthquake>> segments = new ArrayList<>(2);
+
+        // a bound without value lies among the null values, past every row with a value
+        boolean valuesAboveLowerBound = lowerBound == null || lowerBound.sortValue() != null;
+        if (valuesAboveLowerBound) {
+            Specification<Earthquake> values = (root, query, builder) ->
+                field == SortField.TIME ? null : builder.isNotNull(root.get(property));
+            if (lowerBound != null) {
+                values = values.and(seek(field, lowerBound, true));
+            }
+            if (upperBound != null && upperBound.sortValue() != null) {
+                values = values.and(seek(field, upperBound, false));
+            }
+            segments.add(values);
+        }
+
+        boolean nullsBelowUpperBound = field != SortField.TIME && (upperBound == null || upperBound.sortValue() == null);
+        if (nullsBelowUpperBound) {
+            Specification<Earthquake> nulls = (root, query, builder) -> builder.isNull(root.get(property));
+            if (lowerBound != null && lowerBound.sortValue() == null) {
+                nulls = nulls.and((root, query, builder) -> builder.greaterThan(root.get("id"), lowerBound.id()));
+            }
+            if (upperBound != null) {
+                nulls = nulls.and((root, query, builder) -> builder.lessThan(root.get("id"), upperBound.id()));
+            }
+            segments.add(nulls);
+        }
+
+        if (!ascending) {
+            Collections.reverse(segments);
+        }
+        return segments;
+    }
+
+    // rows past the bound, (value >= bound and (value > bound or id > bound id)) so the first term bounds the index scan
+    private Specification<Earthquake> seek(SortField field, ConnectionCursor.Position bound, boolean above) {
+        return switch (field) {
+            case TIME -> seek("time", parseTime(bound.sortValue()), bound.id(), above);
+            case MAGNITUDE -> seek("magnitude", new BigDecimal(bound.sortValue()), bound.id(), above);
+            case SIGNIFICANCE -> seek("significance", Integer.valueOf(bound.sortValue()), bound.id(), above);
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Specification<Earthquake> seek(String property,
+                                                                                    T value,
+                                                                                    Integer id,
+                                                                                    boolean above) {
+        return (root, query, builder) -> {
+            Expression<T> column = root.get(property);
+            Expression<Integer> rowId = root.get("id");
+            return above
+                ? builder.and(
+                    builder.greaterThanOrEqualTo(column, value),
+                    builder.or(builder.greaterThan(column, value), builder.greaterThan(rowId, id)))
+                : builder.and(
+                    builder.lessThanOrEqualTo(column, value),
+                    builder.or(builder.lessThan(column, value), builder.lessThan(rowId, id)));
+        };
+    }
+
+    private static String sortProperty(SortField field) {
+        return field.toString().toLowerCase();
+    }
+
+    private static String sortValue(SortField field, Earthquake earthquake) {
+        return switch (field) {
+            case TIME -> earthquake.getTime() == null ? null : earthquake.getTime().toInstant().toString();
+            case MAGNITUDE -> earthquake.getMagnitude() == null ? null : earthquake.getMagnitude().toPlainString();
+            case SIGNIFICANCE -> earthquake.getSignificance() == null ? null : earthquake.getSignificance().toString();
+        };
+    }
+
+    private static ZonedDateTime parseTime(String value) {
+        return Instant.parse(value).atZone(ZoneOffset.UTC);
+    }
+
+    private static ConnectionCursor.Position decodeCursor(String cursor, SortInput sort) {
+        ConnectionCursor.Position position = ConnectionCursor.fromCursor(cursor);
+        if (!sort.getField().name().equals(position.sortKey())) {
+            throw new IllegalArgumentException("Cursor was created for another sort field: " + position.sortKey());
+        }
+        return position;
     }
 
     private int calculateLimit(Integer first, Integer last) {
@@ -0,0 +1,6 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes.dto;
+
+public enum CountMode {
+    EXACT,
+    ESTIMATED
+}
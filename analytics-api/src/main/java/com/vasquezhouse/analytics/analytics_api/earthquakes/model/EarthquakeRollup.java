@@ -0,0 +1,45 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+/**
+ * Aggregates of the earthquakes of a country in a UTC time bucket, maintained by ingestion, see the
+ * {@code V7__create_earthquake_rollups} analytics migration.
+ */
+@Data
+@MappedSuperclass
+public abstract class EarthquakeRollup {
+    @Id
+    private ZonedDateTime bucket;
+
+    @Id
+    private String country;
+
+    @Column(name = "earthquake_count")
+    private long earthquakeCount;
+
+    @Column(name = "magnitude_count")
+    private long magnitudeCount;
+
+    @Column(name = "magnitude_sum")
+    private BigDecimal magnitudeSum;
+
+    @Column(name = "max_magnitude")
+    private BigDecimal maxMagnitude;
+
+    @Column(name = "tsunami_count")
+    private long tsunamiCount;
+
+    @Data
+    public static class Key implements Serializable {
+        private ZonedDateTime bucket;
+        private String country;
+    }
+}
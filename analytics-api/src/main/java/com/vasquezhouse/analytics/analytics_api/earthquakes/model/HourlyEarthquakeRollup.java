@@ -0,0 +1,11 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+@Entity
+@IdClass(EarthquakeRollup.Key.class)
+@Table(name = "earthquake_rollups_hourly")
+public class HourlyEarthquakeRollup extends EarthquakeRollup {
+}
@@ -3,13 +3,29 @@ package com.vasquezhouse.analytics.analytics_api.relay;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
+/**
+ * Opaque cursor of a row in a sorted connection: the sort it was created for, and the sort value and id of the row,
+ * so the next page can seek right after it.
+ */
 public class ConnectionCursor {
-    public static String toCursor(Integer id) {
-        return Base64.getEncoder().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+
+    private static final String SEPARATOR = ":";
+
+    // the sort value goes last since it may contain the separator, a null one is left out
+    public static String toCursor(String sortKey, Integer id, String sortValue) {
+        String cursor = sortKey + SEPARATOR + id + (sortValue == null ? "" : SEPARATOR + sortValue);
+        return Base64.getEncoder().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
     }
 
-    public static Integer fromCursor(String cursor) {
+    public static Position fromCursor(String cursor) {
         String decoded = new String(Base64.getDecoder().decode(cursor), StandardCharsets.UTF_8);
-        return Integer.parseInt(decoded);
+        String[] parts = decoded.split(SEPARATOR, 3);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new Position(parts[0], Integer.parseInt(parts[1]), parts.length == 3 ? parts[2] : null);
+    }
+
+    public record Position(String sortKey, Integer id, String sortValue) {
     }
 }
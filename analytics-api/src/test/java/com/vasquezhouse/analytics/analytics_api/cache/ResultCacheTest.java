@@ -0,0 +1,85 @@
+package com.vasquezhouse.analytics.analytics_api.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void loadsEveryKeyOnceUntilEmptied() {
+        // arrange
+        ResultCache cache = new ResultCache(true, 10, Duration.ofHours(1), meterRegistry);
+
+        // act
+        cache.get("a", this::load);
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.invalidateAll();
+        Object reloaded = cache.get("a", this::load);
+
+        // assert
+        assertThat(reloaded).isEqualTo(3);
+        assertThat(gets("hit")).isEqualTo(1);
+        assertThat(gets("miss")).isEqualTo(3);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedBeyondItsSize() {
+        // arrange
+        ResultCache cache = new ResultCache(true, 2, Duration.ofHours(1), meterRegistry);
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("a", this::load);
+
+        // act
+        cache.get("c", this::load);
+
+        // assert: b was used last before a
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a", this::load)).isEqualTo(1);
+        assertThat(cache.get("b", this::load)).isEqualTo(4);
+        assertThat(meterRegistry.get("cache.evictions").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void reloadsExpiredResults() {
+        // arrange
+        ResultCache cache = new ResultCache(true, 10, Duration.ofNanos(1), meterRegistry);
+        cache.get("a", this::load);
+
+        // act
+        Object result = cache.get("a", this::load);
+
+        // assert
+        assertThat(result).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotKeepFailedLoads() {
+        // arrange
+        ResultCache cache = new ResultCache(true, 10, Duration.ofHours(1), meterRegistry);
+
+        // act & assert
+        assertThatThrownBy(() -> cache.get("a", () -> {
+            throw new IllegalArgumentException("invalid cursor");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(cache.get("a", this::load)).isEqualTo(1);
+    }
+
+    private Integer load() {
+        return loads.incrementAndGet();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("result", result).counter().count();
+    }
+}
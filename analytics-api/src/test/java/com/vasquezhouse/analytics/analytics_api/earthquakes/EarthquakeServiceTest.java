@@ -0,0 +1,229 @@
+package com.vasquezhouse.analytics.analytics_api.earthquakes;
+
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.CountMode;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeFilter;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.EarthquakeStats;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortDirection;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortField;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.dto.SortInput;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.DailyEarthquakeRollup;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.Earthquake;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.EarthquakeRollup;
+import com.vasquezhouse.analytics.analytics_api.earthquakes.model.HourlyEarthquakeRollup;
+import com.vasquezhouse.analytics.analytics_api.relay.Connection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EarthquakeService.class)
+class EarthquakeServiceTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private EarthquakeRepository repository;
+
+    @Autowired
+    private EarthquakeService earthquakeService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        repository.save(earthquake(START, "4.5", "Japan", true, 300));
+        repository.save(earthquake(START.plusDays(1), "2.5", "Japan", false, 100));
+        repository.save(earthquake(START.plusDays(2), null, "Japan", false, 0));
+        repository.save(earthquake(START.plusDays(3), "6.0", "Chile", true, 800));
+        rollUp();
+    }
+
+    @Test
+    void aggregatesTheMatchingEarthquakes() {
+        // arrange
+        EarthquakeFilter filter = new EarthquakeFilter();
+        filter.setCountry("Japan");
+
+        // act
+        EarthquakeStats stats = earthquakeService.getStats(filter);
+
+        // assert: earthquakes without magnitude are counted but not averaged
+        assertThat(stats.getCount()).isEqualTo(3);
+        assertThat(stats.getAverageMagnitude()).isEqualTo(3.5);
+        assertThat(stats.getMaxMagnitude()).isEqualTo(4.5);
+        assertThat(stats.getTsunamiCount()).isEqualTo(1);
+    }
+
+    @Test
+    void returnsZerosWhenNothingMatches() {
+        // arrange
+        EarthquakeFilter filter = new EarthquakeFilter();
+        filter.setStartTime(START.plusYears(1));
+
+        // act
+        EarthquakeStats stats = earthquakeService.getStats(filter);
+
+        // assert
+        assertThat(stats.getCount()).isZero();
+        assertThat(stats.getAverageMagnitude()).isZero();
+        assertThat(stats.getMaxMagnitude()).isZero();
+        assertThat(stats.getTsunamiCount()).isZero();
+        assertThat(earthquakeService.getCount(new EarthquakeFilter(), CountMode.EXACT)).isEqualTo(4);
+    }
+
+    @Test
+    void aggregatesWholeBucketsFromTheRollupsAndTheEdgesFromTheRows() {
+        // arrange: a row deleted after the rollups tells them apart
+        repository.save(earthquake(START.plusDays(2).plusHours(12).plusMinutes(30), "3.0", "Japan", true, 200));
+        rollUp();
+        repository.deleteAll(repository.findAll().stream()
+            .filter(earthquake -> earthquake.getTime().isEqual(START.plusDays(1)))
+            .toList());
+        EarthquakeFilter filter = new EarthquakeFilter();
+        filter.setCountry("Japan");
+        filter.setStartTime(START.plusMinutes(30));
+        filter.setEndTime(START.plusDays(2).plusHours(12).plusMinutes(45));
+
+        // act
+        EarthquakeStats stats = earthquakeService.getStats(filter);
+
+        // assert: day 1 from the daily rollups, the first hours of day 2 from the hourly ones, 12:30 from the rows
+        assertThat(stats.getCount()).isEqualTo(3);
+        assertThat(stats.getAverageMagnitude()).isEqualTo(2.75);
+        assertThat(stats.getMaxMagnitude()).isEqualTo(3.0);
+        assertThat(stats.getTsunamiCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pagesThroughTiesAndNullsInSortOrder() {
+        // arrange
+        repository.save(earthquake(START.plusDays(4), "2.5", "Chile", false, 100));
+        repository.save(earthquake(START.plusDays(5), null, "Chile", false, 0));
+        List<Earthquake> all = repository.findAll();
+        for (SortDirection direction : SortDirection.values()) {
+            Comparator<Earthquake> byMagnitude = Comparator.comparing(Earthquake::getMagnitude,
+                Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder())).thenComparing(Earthquake::getId);
+            List<Integer> expected = all.stream()
+                .sorted(direction == SortDirection.ASC ? byMagnitude : byMagnitude.reversed())
+                .map(Earthquake::getId)
+                .toList();
+
+            // act
+            List<Integer> forward = new ArrayList<>();
+            String after = null;
+            Connection<Earthquake> page;
+            do {
+                page = earthquakeService.getEarthquakes(new EarthquakeFilter(), sort(SortField.MAGNITUDE, direction), 2, null, after, null, null);
+                page.getEdges().forEach(edge -> forward.add(edge.getNode().getId()));
+                after = page.getPageInfo().getEndCursor();
+            } while (page.getPageInfo().isHasNextPage());
+
+            List<Integer> backward = new ArrayList<>();
+            String before = null;
+            do {
+                page = earthquakeService.getEarthquakes(new EarthquakeFilter(), sort(SortField.MAGNITUDE, direction), null, 2, null, before, null);
+                backward.addAll(0, page.getEdges().stream().map(edge -> edge.getNode().getId()).toList());
+                before = page.getPageInfo().getStartCursor();
+            } while (page.getPageInfo().isHasPreviousPage());
+
+            // assert
+            assertThat(forward).as("forward %s", direction).isEqualTo(expected);
+            assertThat(backward).as("backward %s", direction).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void countsOnlyWhenTheTotalIsRequested() {
+        // arrange
+        EarthquakeFilter filter = new EarthquakeFilter();
+        filter.setCountry("Japan");
+
+        // act
+        Connection<Earthquake> uncounted = earthquakeService.getEarthquakes(filter, sort(SortField.TIME, SortDirection.DESC), 1, null, null, null, null);
+        Connection<Earthquake> counted = earthquakeService.getEarthquakes(filter, sort(SortField.TIME, SortDirection.DESC), 1, null, null, null, CountMode.EXACT);
+
+        // assert
+        assertThat(uncounted.getTotalCount()).isZero();
+        assertThat(counted.getTotalCount()).isEqualTo(3);
+        assertThat(counted.getEdges()).hasSize(1);
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherSort() {
+        // arrange
+        String cursor = earthquakeService.getEarthquakes(new EarthquakeFilter(), sort(SortField.TIME, SortDirection.DESC), 1, null, null, null, null)
+            .getPageInfo().getEndCursor();
+
+        // act & assert
+        assertThatThrownBy(() -> earthquakeService.getEarthquakes(new EarthquakeFilter(),
+            sort(SortField.SIGNIFICANCE, SortDirection.DESC), 1, null, cursor, null, null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // as ingestion maintains them
+    private void rollUp() {
+        entityManager.getEntityManager().createQuery("delete from HourlyEarthquakeRollup").executeUpdate();
+        entityManager.getEntityManager().createQuery("delete from DailyEarthquakeRollup").executeUpdate();
+        entityManager.clear();
+        for (ChronoUnit unit : List.of(ChronoUnit.HOURS, ChronoUnit.DAYS)) {
+            Map<List<Object>, List<Earthquake>> buckets = repository.findAll().stream()
+                .collect(Collectors.groupingBy(earthquake ->
+                    List.of(earthquake.getTime().toInstant().truncatedTo(unit), earthquake.getCountry())));
+            buckets.forEach((key, earthquakes) -> {
+                EarthquakeRollup rollup = unit == ChronoUnit.HOURS ? new HourlyEarthquakeRollup() : new DailyEarthquakeRollup();
+                rollup.setBucket(((Instant) key.get(0)).atZone(ZoneOffset.UTC));
+                rollup.setCountry((String) key.get(1));
+                rollup.setEarthquakeCount(earthquakes.size());
+                rollup.setMagnitudeCount(earthquakes.stream().filter(earthquake -> earthquake.getMagnitude() != null).count());
+                rollup.setMagnitudeSum(earthquakes.stream().map(Earthquake::getMagnitude).filter(Objects::nonNull)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+                rollup.setMaxMagnitude(earthquakes.stream().map(Earthquake::getMagnitude).filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder()).orElse(null));
+                rollup.setTsunamiCount(earthquakes.stream().filter(Earthquake::getTsunami).count());
+                entityManager.persist(rollup);
+            });
+        }
+        entityManager.flush();
+    }
+
+    private static SortInput sort(SortField field, SortDirection direction) {
+        SortInput sort = new SortInput();
+        sort.setField(field);
+        sort.setDirection(direction);
+        return sort;
+    }
+
+    static Earthquake earthquake(ZonedDateTime time, String magnitude, String country, boolean tsunami, int significance) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setTime(time);
+        earthquake.setMagnitude(magnitude == null ? null : new BigDecimal(magnitude));
+        earthquake.setPlace("somewhere in " + country);
+        earthquake.setCountry(country);
+        earthquake.setTsunami(tsunami);
+        earthquake.setSignificance(significance);
+        earthquake.setSourceId(",us,");
+        return earthquake;
+    }
+}
@@ -33,6 +33,7 @@ public class JobController {
         fileIngestionJobRequest.setJobId(request.jobId());
         fileIngestionJobRequest.setDataDirectory(request.dataDirectory());
         fileIngestionJobRequest.setJobType("earthquake-ingestion-job");
+        fileIngestionJobRequest.setPriority(request.priority() == null ? 0 : request.priority());
         
         rabbitTemplate.convertAndSend(exchangeName, "", fileIngestionJobRequest);
         
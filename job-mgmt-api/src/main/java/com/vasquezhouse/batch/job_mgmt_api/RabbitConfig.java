@@ -1,16 +1,27 @@
 package com.vasquezhouse.batch.job_mgmt_api;
 
+import com.vasquezhouse.batch.CompactMessageConverter;
+import com.vasquezhouse.batch.FileIngestionJobRequestCodec;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration
 public class RabbitConfig {
     
     @Value("${app.jobs-exchange}")
     private String exchangeName;
     
+    // used by the rabbit template sending the job requests
+    @Bean
+    public MessageConverter messageConverter() {
+        return new CompactMessageConverter(List.of(new FileIngestionJobRequestCodec()));
+    }
+
     @Bean
     public TopicExchange exchange() {
         return new TopicExchange(exchangeName);
@@ -1,4 +1,9 @@
 package com.vasquezhouse.batch.job_mgmt_api.model;
 
-public record RunJobRequest(String jobId, String dataDirectory) {
+// priority is optional, higher runs first when the manager is busy
+public record RunJobRequest(String jobId, String dataDirectory, Integer priority) {
+
+    public RunJobRequest(String jobId, String dataDirectory) {
+        this(jobId, dataDirectory, null);
+    }
 }
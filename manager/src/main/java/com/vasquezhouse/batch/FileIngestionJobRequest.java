@@ -2,14 +2,13 @@ package com.vasquezhouse.batch;
 
 import lombok.Data;
 
-import java.io.Serializable;
-
-// using serializable class instead of record because this class is to send messages to Spring Batch that does not
-// work well with JSON serialization
-// Also, keeping this class in a package common to multiple apps so java serialization does not run into namespaces issues
+// only encoded by FileIngestionJobRequestCodec, Java serialized requests are rejected by CompactMessageConverter
+// Copied as is into manager and job-mgmt-api, like the codec, changes go to both copies
 @Data
-public class FileIngestionJobRequest implements Serializable {
+public class FileIngestionJobRequest {
     private String jobId;
     private String jobType;
     private String dataDirectory;
+    // higher runs first when the manager already runs as many jobs as it can
+    private int priority;
 }
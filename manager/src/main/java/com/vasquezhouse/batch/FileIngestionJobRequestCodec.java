@@ -0,0 +1,37 @@
+package com.vasquezhouse.batch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// kept in the package common to multiple apps, next to the job request it encodes
+public class FileIngestionJobRequestCodec implements CompactMessageConverter.Codec<FileIngestionJobRequest> {
+
+    @Override
+    public String type() {
+        return "job-request";
+    }
+
+    @Override
+    public Class<FileIngestionJobRequest> javaType() {
+        return FileIngestionJobRequest.class;
+    }
+
+    @Override
+    public void write(FileIngestionJobRequest request, DataOutput out) throws IOException {
+        CompactMessageConverter.writeString(request.getJobId(), out);
+        CompactMessageConverter.writeString(request.getJobType(), out);
+        CompactMessageConverter.writeString(request.getDataDirectory(), out);
+        out.writeInt(request.getPriority());
+    }
+
+    @Override
+    public FileIngestionJobRequest read(DataInput in) throws IOException {
+        FileIngestionJobRequest request = new FileIngestionJobRequest();
+        request.setJobId(CompactMessageConverter.readString(in));
+        request.setJobType(CompactMessageConverter.readString(in));
+        request.setDataDirectory(CompactMessageConverter.readString(in));
+        request.setPriority(in.readInt());
+        return request;
+    }
+}
@@ -0,0 +1,136 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finds CSV record boundaries close to arbitrary byte offsets so a file can be split into ranges that workers read
+ * independently.
+ * <p>
+ * A line break inside a quoted field is not a record boundary, and it can't be told apart from a real one without
+ * reading the file from the start. Instead, a candidate line start is accepted only when the records that follow it
+ * tokenize into the same number of fields as the header. Starting in the middle of a quoted field flips the quote
+ * state and breaks that check.
+ */
+class CsvRecordAligner implements Closeable {
+
+    private static final int RECORDS_TO_VERIFY = 2;
+    private static final int MAX_VERIFY_BYTES = 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int columnCount;
+
+    CsvRecordAligner(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.columnCount = countFields(0);
+    }
+
+    /**
+     * @return the offset of the first record starting at or after {@code offset}, or the file size when there is none
+     */
+    long align(long offset) throws IOException {
+        long candidate = nextLineStart(offset);
+        while (candidate < size) {
+            if (startsRecords(candidate)) {
+                return candidate;
+            }
+            candidate = nextLineStart(candidate + 1);
+        }
+        return size;
+    }
+
+    long size() {
+        return size;
+    }
+
+    // smallest offset >= the given one that follows a line break
+    private long nextLineStart(long offset) throws IOException {
+        if (offset <= 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = offset - 1;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private boolean startsRecords(long offset) throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(offset)));
+        long verifiedBytes = 0;
+
+        for (int record = 0; record < RECORDS_TO_VERIFY; record++) {
+            int fields = 1;
+            boolean inQuotes = false;
+            long recordBytes = 0;
+
+            int b;
+            while ((b = in.read()) >= 0 && !(b == '\n' && !inQuotes)) {
+                if (++verifiedBytes > MAX_VERIFY_BYTES) {
+                    return false;
+                }
+                recordBytes++;
+
+                // an escaped quote ("") toggles twice and leaves the state unchanged
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == ',' && !inQuotes) {
+                    fields++;
+                }
+            }
+
+            if (b < 0) {
+                // end of file right after the previous record, or a last record without a trailing line break
+                return recordBytes == 0 || (!inQuotes && fields == columnCount);
+            }
+            if (fields != columnCount) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int countFields(long offset) throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(offset)));
+        int fields = 1;
+        boolean inQuotes = false;
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && b == ',') {
+                fields++;
+            } else if (!inQuotes && b == '\n') {
+                break;
+            }
+        }
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Size, modification time and SHA-256 content hash of an input file.
+ * <p>
+ * Partitions carry the fingerprints of their files under {@code fileSize.<i>}, {@code lastModified.<i>} and
+ * {@code contentHash.<i>}, next to {@code filename.<i>}, so the manifest can be updated from the partitions that
+ * completed.
+ */
+public record FileFingerprint(String path, long size, long lastModified, String contentHash) {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    public static FileFingerprint of(File file) {
+        // metadata first, a file still being written then looks changed again on the next run
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fingerprint file: " + file, e);
+        }
+        return new FileFingerprint(file.getAbsolutePath(), size, lastModified, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    public void putInto(ExecutionContext context, int index) {
+        context.putLong("fileSize." + index, size);
+        context.putLong("lastModified." + index, lastModified);
+        context.putString("contentHash." + index, contentHash);
+    }
+
+    /**
+     * @return the fingerprint of the file at the index, or null when the partition was created without it
+     */
+    public static FileFingerprint from(ExecutionContext context, int index) {
+        if (!context.containsKey("contentHash." + index)) {
+            return null;
+        }
+        return new FileFingerprint(
+            context.getString("filename." + index),
+            context.getLong("fileSize." + index),
+            context.getLong("lastModified." + index),
+            context.getString("contentHash." + index)
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manifest of the input files already ingested, kept in the {@code ingested_files} table of the batch database.
+ * <p>
+ * A file is pending when its path is not in the manifest or its content changed since it was ingested. Size and
+ * modification time are compared first, the file is only hashed when either differs, so unchanged files are never
+ * read. A file with a new modification time but the same content hash is not pending, its manifest entry is updated
+ * so it is not hashed again.
+ */
+@Slf4j
+@Component
+public class FileManifest {
+
+    static final String SELECT_SQL = "select path, size_bytes, last_modified, content_hash from ingested_files";
+
+    // a single statement, concurrent jobs recording the same new file would both insert it otherwise
+    static final String UPSERT_SQL = "insert into ingested_files " +
+        "(size_bytes, last_modified, content_hash, job_execution_id, ingested_at, path) values (?, ?, ?, ?, ?, ?) " +
+        "on conflict (path) do update set size_bytes = excluded.size_bytes, last_modified = excluded.last_modified, " +
+        "content_hash = excluded.content_hash, job_execution_id = excluded.job_execution_id, " +
+        "ingested_at = excluded.ingested_at";
+
+    static final String TOUCH_SQL = "update ingested_files set size_bytes = ?, last_modified = ? where path = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FileManifest(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @return the fingerprints of the files that are new or changed since they were ingested
+     */
+    public List<FileFingerprint> pending(File[] files) {
+        Map<String, FileFingerprint> ingested = new HashMap<>();
+        jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+            FileFingerprint fingerprint = new FileFingerprint(
+                rs.getString("path"),
+                rs.getLong("size_bytes"),
+                rs.getTimestamp("last_modified").getTime(),
+                rs.getString("content_hash")
+            );
+            ingested.put(fingerprint.path(), fingerprint);
+        });
+
+        List<FileFingerprint> pending = new ArrayList<>();
+        for (File file : files) {
+            FileFingerprint known = ingested.get(file.getAbsolutePath());
+            if (known != null && known.size() == file.length() && known.lastModified() == file.lastModified()) {
+                continue;
+            }
+
+            FileFingerprint fingerprint = FileFingerprint.of(file);
+            if (known != null && known.contentHash().equals(fingerprint.contentHash())) {
+                log.debug(" >>> file touched but not changed: {}", fingerprint.path());
+                jdbcTemplate.update(TOUCH_SQL, fingerprint.size(), new Timestamp(fingerprint.lastModified()), fingerprint.path());
+                continue;
+            }
+            pending.add(fingerprint);
+        }
+
+        log.info(" >>> {} of {} files are new or changed since they were ingested", pending.size(), files.length);
+        return pending;
+    }
+
+    /**
+     * Records the files as ingested by the job execution, replacing the entries of earlier versions of the files.
+     */
+    public void recordIngested(Collection<FileFingerprint> fingerprints, long jobExecutionId) {
+        Timestamp now = Timestamp.from(Instant.now());
+        for (FileFingerprint fingerprint : fingerprints) {
+            jdbcTemplate.update(UPSERT_SQL,
+                fingerprint.size(),
+                new Timestamp(fingerprint.lastModified()),
+                fingerprint.contentHash(),
+                jobExecutionId,
+                now,
+                fingerprint.path()
+            );
+        }
+        log.info(" >>> recorded {} ingested files for job execution {}", fingerprints.size(), jobExecutionId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records in the {@link FileManifest} the files of the partitions that completed, once their rows are in
+ * {@code earthquakes}: when the manager step ends in direct load mode, when the merge step completed in staging load
+ * mode. Nothing is recorded when the merge step failed, the files stay pending for the next incremental job.
+ * <p>
+ * A file split in several ranges is only recorded when every partition reading one of its ranges completed. Partitions
+ * completed by earlier executions of a restarted job count too, only the latest execution of each partition is
+ * considered, or its completed attempt when it was re-published as a straggler. Partitions created without
+ * fingerprints, outside the incremental mode, are ignored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FileManifestListener implements StepExecutionListener {
+
+    // partitions write straight into earthquakes, the other steps only once they completed
+    static final String MANAGER_STEP = "managerStep";
+
+    // step executions of the partitions are named <partition step>:<partition>
+    private static final String PARTITION_NAMES = "workerStep:";
+
+    private final JobExplorer jobExplorer;
+    private final FileManifest fileManifest;
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        JobExecution jobExecution = stepExecution.getJobExecution();
+        if (!stepExecution.getStepName().equals(MANAGER_STEP) && stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            log.warn(" >>> {} did not complete, no file is recorded as ingested", stepExecution.getStepName());
+            return stepExecution.getExitStatus();
+        }
+
+        Map<String, StepExecution> latestPartitions = new HashMap<>();
+        for (JobExecution execution : jobExplorer.getJobExecutions(jobExecution.getJobInstance())) {
+            for (StepExecution partition : execution.getStepExecutions()) {
+                if (!partition.getStepName().startsWith(PARTITION_NAMES)) {
+                    continue;
+                }
+                latestPartitions.merge(partition.getStepName(), partition, FileManifestListener::latest);
+            }
+        }
+
+        Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        Set<String> incomplete = new HashSet<>();
+        for (StepExecution partition : latestPartitions.values()) {
+            ExecutionContext context = partition.getExecutionContext();
+            for (int i = 0; i < context.getInt("fileCount", 0); i++) {
+                FileFingerprint fingerprint = FileFingerprint.from(context, i);
+                if (fingerprint == null) {
+                    continue;
+                }
+                fingerprints.put(fingerprint.path(), fingerprint);
+                if (partition.getStatus() != BatchStatus.COMPLETED) {
+                    incomplete.add(fingerprint.path());
+                }
+            }
+        }
+
+        List<FileFingerprint> completed = new ArrayList<>();
+        fingerprints.forEach((path, fingerprint) -> {
+            if (!incomplete.contains(path)) {
+                completed.add(fingerprint);
+            }
+        });
+        if (!completed.isEmpty()) {
+            fileManifest.recordIngested(completed, jobExecution.getId());
+        }
+        if (!incomplete.isEmpty()) {
+            log.warn(" >>> {} files were not completely ingested and will be picked up again: {}", incomplete.size(), incomplete);
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    // a completed attempt of a re-published straggler partition wins over the other attempt, whatever their order
+    private static StepExecution latest(StepExecution a, StepExecution b) {
+        boolean aCompleted = a.getStatus() == BatchStatus.COMPLETED;
+        if (aCompleted != (b.getStatus() == BatchStatus.COMPLETED)) {
+            return aCompleted ? a : b;
+        }
+        return a.getId() > b.getId() ? a : b;
+    }
+}
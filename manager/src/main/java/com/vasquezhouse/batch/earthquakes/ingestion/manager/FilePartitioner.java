@@ -4,49 +4,177 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.partition.support.Partitioner;
 import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 @Slf4j
 @Component
 @StepScope
 public class FilePartitioner implements Partitioner {
 
+    // compressed files are read whole by a single worker, for packing they weigh as much as the CSV they expand to
+    private static final List<String> COMPRESSED_EXTENSIONS = List.of(".csv.gz", ".csv.zst");
+    private static final int ESTIMATED_COMPRESSION_RATIO = 8;
+
     @Value("${app.input-directory}")
     private String inputDirectory;
 
     @Value("#{jobParameters['dataDirectory']}")
     private String subDirectory;
-    
+
+    // files are never split in ranges smaller than this, the overhead of a partition would outweigh the gain
+    @Value("${app.partition.min-split-size}")
+    private DataSize minSplitSize;
+
+    // full: every matching file, incremental: only files new or changed since they were last ingested
+    @Value("${app.ingestion-mode:full}")
+    private String ingestionMode = "full";
+
+    @Autowired
+    private FileManifest fileManifest;
+
     @Override
     public Map<String, ExecutionContext> partition(int gridSize) {
         String sourceDirectory = inputDirectory + "/" + subDirectory;
         File[] files = new File(sourceDirectory)
-            .listFiles((dir, name) -> name.startsWith("earthquakes") && name.endsWith(".csv"));
+            .listFiles((dir, name) -> name.startsWith("earthquakes") && (name.endsWith(".csv") || isCompressed(name)));
 
         Map<String, ExecutionContext> partitions = new HashMap<>();
 
-        if (files != null) {
+        Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        if (files != null && files.length > 0 && "incremental".equals(ingestionMode)) {
+            fileManifest.pending(files).forEach(fingerprint -> fingerprints.put(fingerprint.path(), fingerprint));
+            files = Arrays.stream(files)
+                .filter(file -> fingerprints.containsKey(file.getAbsolutePath()))
+                .toArray(File[]::new);
+        }
+
+        if (files != null && files.length > 0) {
             log.info(" >>> Found {} files to process in {}", files.length, sourceDirectory);
-            
-            for (int i = 0; i < files.length; i++) {
+
+            // aim for about gridSize partitions of similar size, large files are split in byte ranges
+            long totalSize = 0;
+            for (File file : files) {
+                totalSize += isCompressed(file.getName()) ? file.length() * ESTIMATED_COMPRESSION_RATIO : file.length();
+            }
+            long splitSize = Math.max(minSplitSize.toBytes(), Math.ceilDiv(totalSize, Math.max(gridSize, 1)));
+
+            List<FileRange> ranges = new ArrayList<>();
+            for (File file : files) {
+                ranges.addAll(splitFile(file, splitSize));
+            }
+
+            List<List<FileRange>> bins = pack(ranges, gridSize);
+            for (int i = 0; i < bins.size(); i++) {
+                List<FileRange> bin = bins.get(i);
                 ExecutionContext context = new ExecutionContext();
-                String filename = files[i].getAbsolutePath();
-                context.putString("filename", filename);
+                context.putInt("fileCount", bin.size());
+                for (int j = 0; j < bin.size(); j++) {
+                    FileRange range = bin.get(j);
+                    context.putString("filename." + j, range.filename());
+                    if (!range.compressed()) {
+                        context.putLong("startOffset." + j, range.startOffset());
+                        context.putLong("endOffset." + j, range.endOffset());
+                    }
+                    FileFingerprint fingerprint = fingerprints.get(range.filename());
+                    if (fingerprint != null) {
+                        fingerprint.putInto(context, j);
+                    }
+                }
 
                 // Partition name must be unique
                 String partitionName = "partition" + i;
                 partitions.put(partitionName, context);
-                log.info(" >>> Created partition: {} for file: {}", partitionName, filename);
+                log.info(" >>> Created partition: {} with {} bytes in {} file ranges",
+                    partitionName, bin.stream().mapToLong(FileRange::length).sum(), bin.size());
+                log.debug(" >>> Partition: {} file ranges: {}", partitionName, bin);
             }
         } else {
-            log.warn(" >>> No files found in directory: {}", sourceDirectory);
+            log.warn(" >>> No files to ingest in directory: {}", sourceDirectory);
         }
 
         return partitions;
     }
+
+    // splits the file in byte ranges of about splitSize, each range starts at a record boundary
+    private static List<FileRange> splitFile(File file, long splitSize) {
+        String filename = file.getAbsolutePath();
+        long size = file.length();
+        if (isCompressed(filename)) {
+            return List.of(new FileRange(filename, 0, size, true));
+        }
+        if (size <= splitSize) {
+            return List.of(new FileRange(filename, 0, size, false));
+        }
+
+        int rangeCount = (int) Math.ceilDiv(size, splitSize);
+        List<FileRange> ranges = new ArrayList<>(rangeCount);
+
+        try (CsvRecordAligner aligner = new CsvRecordAligner(file.toPath())) {
+            long start = 0;
+            for (int i = 1; i < rangeCount; i++) {
+                long end = aligner.align(size * i / rangeCount);
+                if (end > start && end < size) {
+                    ranges.add(new FileRange(filename, start, end, false));
+                    start = end;
+                }
+            }
+            ranges.add(new FileRange(filename, start, size, false));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to split file: " + file, e);
+        }
+
+        return ranges;
+    }
+
+    // longest-processing-time-first: biggest ranges first, each one into the bin with the least bytes so far
+    private static List<List<FileRange>> pack(List<FileRange> ranges, int gridSize) {
+        int binCount = Math.min(Math.max(gridSize, 1), ranges.size());
+        List<List<FileRange>> bins = new ArrayList<>(binCount);
+        long[] loads = new long[binCount];
+        PriorityQueue<Integer> lightestBins = new PriorityQueue<>(
+            Comparator.<Integer>comparingLong(bin -> loads[bin]).thenComparingInt(bin -> bin));
+        for (int i = 0; i < binCount; i++) {
+            bins.add(new ArrayList<>());
+            lightestBins.add(i);
+        }
+
+        List<FileRange> largestFirst = new ArrayList<>(ranges);
+        largestFirst.sort(Comparator.comparingLong(FileRange::length).reversed());
+        for (FileRange range : largestFirst) {
+            int bin = lightestBins.poll();
+            bins.get(bin).add(range);
+            loads[bin] += range.length();
+            lightestBins.add(bin);
+        }
+
+        // read files in a predictable order within each partition
+        Comparator<FileRange> fileOrder = Comparator.comparing(FileRange::filename).thenComparingLong(FileRange::startOffset);
+        bins.forEach(bin -> bin.sort(fileOrder));
+        return bins;
+    }
+
+    private static boolean isCompressed(String filename) {
+        return COMPRESSED_EXTENSIONS.stream().anyMatch(filename::endsWith);
+    }
+
+    private record FileRange(String filename, long startOffset, long endOffset, boolean compressed) {
+        // estimated bytes of CSV to read
+        long length() {
+            return compressed ? (endOffset - startOffset) * ESTIMATED_COMPRESSION_RATIO : endOffset - startOffset;
+        }
+    }
 }
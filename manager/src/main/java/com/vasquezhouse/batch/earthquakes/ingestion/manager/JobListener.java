@@ -1,15 +1,28 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.manager;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.StepExecution;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JobListener implements JobExecutionListener {
 
+    private static final String MANAGER_STEP = "managerStep";
+
+    private final AmqpTemplate amqpTemplate;
+
+    @Value("${app.dataset-changed-exchange}")
+    private String datasetChangedExchangeName;
+
     @Override
     public void beforeJob(JobExecution jobExecution) {
         log.info(" >>> Job started: {} at {}",
@@ -27,12 +40,41 @@ public class JobListener implements JobExecutionListener {
 
         // Log statistics for each step
         for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
-            log.info(" >>> Step: {} - Read: {}, Processed: {}, Written: {}, Skipped: {}",
+            log.info(" >>> Step: {} - Read: {}, Processed: {}, Written: {}, Skipped: {} (read: {}, process: {}, write: {})",
                 stepExecution.getStepName(),
                 stepExecution.getReadCount(),
                 stepExecution.getFilterCount(),
                 stepExecution.getWriteCount(),
-                stepExecution.getSkipCount());
+                stepExecution.getSkipCount(),
+                stepExecution.getReadSkipCount(),
+                stepExecution.getProcessSkipCount(),
+                stepExecution.getWriteSkipCount());
+        }
+
+        // partitions aggregate their counts into the manager step, workers in quarantine mode keep the skipped rows
+        long skipped = jobExecution.getStepExecutions().stream()
+            .filter(stepExecution -> MANAGER_STEP.equals(stepExecution.getStepName()))
+            .mapToLong(StepExecution::getSkipCount)
+            .sum();
+        if (skipped > 0) {
+            log.warn(" >>> Job {} skipped {} invalid rows, see quarantined_rows where job_execution_id = {}",
+                jobExecution.getJobInstance().getJobName(),
+                skipped,
+                jobExecution.getId());
+        }
+
+        if (jobExecution.getStatus() == BatchStatus.COMPLETED) {
+            publishDatasetChanged(jobExecution);
+        }
+    }
+
+    // the analytics API caches query results until then, a failed job may have written rows too but is run again
+    private void publishDatasetChanged(JobExecution jobExecution) {
+        try {
+            amqpTemplate.convertAndSend(datasetChangedExchangeName, "", String.valueOf(jobExecution.getId()));
+        } catch (AmqpException e) {
+            log.warn(" >>> Could not publish the dataset change of job execution {}, cached results expire on their own",
+                jobExecution.getId(), e);
         }
     }
 }
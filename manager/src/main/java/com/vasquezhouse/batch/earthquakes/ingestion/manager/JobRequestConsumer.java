@@ -3,13 +3,14 @@ package com.vasquezhouse.batch.earthquakes.ingestion.manager;
 import com.vasquezhouse.batch.FileIngestionJobRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.JobParametersInvalidException;
-import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
 import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
 import org.springframework.batch.core.repository.JobRestartException;
@@ -20,7 +21,7 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class JobRequestConsumer {
 
-    private final JobLauncher jobLauncher;
+    private final PriorityJobLauncher jobLauncher;
     private final Job job;
     
     private static final String JOB_TYPE_TO_PROCESS = "earthquake-ingestion-job";
@@ -38,12 +39,19 @@ public class JobRequestConsumer {
             .addString("dataDirectory", request.getDataDirectory())
             .toJobParameters();
 
+        // the request is acked once the job is queued, the listener thread doesn't wait for the job to finish
         try {
-            log.info(" >>> launching {}...", JOB_TYPE_TO_PROCESS);
-            JobExecution jobExecution = jobLauncher.run(job, jobParameters);
-            log.debug(" >>> job finished. execution id: [{}] status: [{}]", jobExecution.getJobId(), jobExecution.getStatus());
+            log.info(" >>> launching {} with priority {}...", JOB_TYPE_TO_PROCESS, request.getPriority());
+            JobExecution jobExecution = jobLauncher.launch(job, jobParameters, request.getPriority());
+            log.debug(" >>> job accepted. execution id: [{}]", jobExecution.getId());
         } catch (JobExecutionAlreadyRunningException | JobRestartException | JobInstanceAlreadyCompleteException |
                  JobParametersInvalidException e) {
+            // requeueing would only be rejected again
+            throw new AmqpRejectAndDontRequeueException(e);
+        } catch (JobExecutionException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
     }
@@ -0,0 +1,65 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.PollableChannel;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the aggregated partition replies of a job to the manager step of that job.
+ * <p>
+ * The partition handler waits for the replies on a single channel; with several jobs running, a plain queue would hand
+ * the replies of one job to the manager step of another. Replies are kept by job execution instead, and a manager step
+ * only receives the replies of its own job, found from the step execution of the receiving thread.
+ */
+public class PartitionRepliesChannel implements PollableChannel {
+
+    private final Map<Long, BlockingQueue<Message<?>>> replies = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean send(Message<?> message, long timeout) {
+        if (!(message.getPayload() instanceof Collection<?> partitions) || partitions.isEmpty()) {
+            throw new IllegalArgumentException("Expected the step executions of the partitions, got: " + message.getPayload());
+        }
+        long jobExecutionId = ((StepExecution) partitions.iterator().next()).getJobExecutionId();
+        return queue(jobExecutionId).offer(message);
+    }
+
+    @Override
+    public Message<?> receive() {
+        return receive(-1);
+    }
+
+    @Override
+    public Message<?> receive(long timeout) {
+        StepContext context = StepSynchronizationManager.getContext();
+        if (context == null) {
+            throw new IllegalStateException("Partition replies can only be received by a manager step");
+        }
+        long jobExecutionId = context.getStepExecution().getJobExecutionId();
+        try {
+            Message<?> message = timeout < 0
+                ? queue(jobExecutionId).take()
+                : queue(jobExecutionId).poll(timeout, TimeUnit.MILLISECONDS);
+            if (message != null) {
+                replies.remove(jobExecutionId);
+            }
+            return message;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private BlockingQueue<Message<?>> queue(long jobExecutionId) {
+        return replies.computeIfAbsent(jobExecutionId, id -> new LinkedBlockingQueue<>());
+    }
+}
@@ -0,0 +1,118 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Launches jobs in the background, at most {@code app.jobs.max-concurrent} at a time, the others wait in a queue
+ * ordered by priority, then by arrival.
+ * <p>
+ * {@link #launch} returns once the job execution is created in the job repository, queued jobs show as
+ * {@code STARTING} until a slot frees up. When {@code app.jobs.max-queued} jobs are already waiting, it blocks the
+ * caller until one of them starts. Jobs still waiting when the manager shuts down are marked as failed so they can be
+ * restarted.
+ */
+@Slf4j
+@Component
+public class PriorityJobLauncher {
+
+    private final JobRepository jobRepository;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore queueSlots;
+    private final AtomicLong arrivals = new AtomicLong();
+
+    public PriorityJobLauncher(JobRepository jobRepository,
+                               @Value("${app.jobs.max-concurrent:2}") int maxConcurrentJobs,
+                               @Value("${app.jobs.max-queued:100}") int maxQueuedJobs) {
+        this.jobRepository = jobRepository;
+        this.queueSlots = new Semaphore(maxQueuedJobs);
+        // queued jobs are only ever passed to execute, never wrapped by submit, so the queue can compare them
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(maxQueuedJobs),
+            Thread.ofPlatform().name("job-launcher-", 0).factory());
+    }
+
+    public JobExecution launch(Job job, JobParameters jobParameters, int priority)
+        throws JobExecutionException, InterruptedException {
+        queueSlots.acquire();
+        try {
+            job.getJobParametersValidator().validate(jobParameters);
+            JobExecution jobExecution = jobRepository.createJobExecution(job.getName(), jobParameters);
+            executor.execute(new QueuedJob(job, jobExecution, priority, arrivals.getAndIncrement()));
+            log.info(" >>> queued job execution [{}] with priority {}, {} jobs running, {} waiting",
+                jobExecution.getId(), priority, executor.getActiveCount(), executor.getQueue().size());
+            return jobExecution;
+        } catch (JobExecutionException | RuntimeException e) {
+            queueSlots.release();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Runnable> waiting = new ArrayList<>();
+        executor.getQueue().drainTo(waiting);
+        executor.shutdown(); // running jobs go on until the JVM exits
+
+        for (Runnable runnable : waiting) {
+            JobExecution jobExecution = ((QueuedJob) runnable).jobExecution;
+            jobExecution.setStatus(BatchStatus.FAILED);
+            jobExecution.setExitStatus(ExitStatus.FAILED.addExitDescription("Manager shut down before the job started"));
+            jobExecution.setEndTime(LocalDateTime.now());
+            jobRepository.update(jobExecution);
+            log.warn(" >>> job execution [{}] was waiting at shutdown, marked as failed", jobExecution.getId());
+        }
+    }
+
+    private class QueuedJob implements Runnable, Comparable<QueuedJob> {
+
+        private final Job job;
+        private final JobExecution jobExecution;
+        private final int priority;
+        private final long arrival;
+
+        QueuedJob(Job job, JobExecution jobExecution, int priority, long arrival) {
+            this.job = job;
+            this.jobExecution = jobExecution;
+            this.priority = priority;
+            this.arrival = arrival;
+        }
+
+        @Override
+        public void run() {
+            // leaving the queue frees a slot, not finishing the job
+            queueSlots.release();
+            log.info(" >>> starting job execution [{}]", jobExecution.getId());
+            // what a JobLauncher checks before running is done by launch: the parameters are validated, and
+            // createJobExecution rejects running, complete and not restartable instances. A TaskExecutorJobLauncher
+            // would only create the execution once a slot frees up, queued jobs wouldn't show as STARTING.
+            // AbstractJob.execute records its own failures in the job repository
+            job.execute(jobExecution);
+            log.debug(" >>> job finished. execution id: [{}] status: [{}]", jobExecution.getId(), jobExecution.getStatus());
+        }
+
+        @Override
+        public int compareTo(QueuedJob other) {
+            int byPriority = Integer.compare(other.priority, priority); // higher priority first
+            return byPriority != 0 ? byPriority : Long.compare(arrival, other.arrival);
+        }
+    }
+}
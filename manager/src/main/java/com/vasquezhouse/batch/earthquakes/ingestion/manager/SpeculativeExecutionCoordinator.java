@@ -0,0 +1,232 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.StragglerDetector.PartitionProgress;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.integration.partition.StepExecutionRequest;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-publishes straggler partitions of the manager step so another worker runs them too, the first attempt to complete
+ * wins.
+ * <p>
+ * While the manager step runs, the progress of its partitions is polled from {@code BATCH_STEP_EXECUTION} and compared
+ * by the {@link StragglerDetector}. A straggler gets a second step execution with the same name, continuing from the
+ * context the straggler last committed, and a higher {@value #FENCING_TOKEN_KEY}: once the new attempt writes, workers
+ * reject the writes of the older one. Each partition is re-published at most once.
+ * <p>
+ * Only one reply per partition reaches the manager step: the first completed attempt, or the last failed one when none
+ * completed. The others are dropped from the replies channel, so the partition handler still counts one reply per
+ * partition.
+ */
+@Slf4j
+@Component
+public class SpeculativeExecutionCoordinator implements StepExecutionListener {
+
+    public static final String FENCING_TOKEN_KEY = "fencing-token";
+
+    static final String PROGRESS_SQL = "SELECT STEP_EXECUTION_ID, STEP_NAME, STATUS, START_TIME, END_TIME, READ_COUNT " +
+        "FROM BATCH_STEP_EXECUTION WHERE JOB_EXECUTION_ID = ? AND STEP_NAME LIKE ?";
+
+    // step executions of the partitions are named <partition step>:<partition>
+    private static final String PARTITION_NAMES = "workerStep:%";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final MessageChannel requestsChannel;
+
+    @Value("${app.speculation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.speculation.poll-interval:10s}")
+    private Duration pollInterval = Duration.ofSeconds(10);
+
+    @Value("${app.speculation.slowdown-factor:2.0}")
+    private double slowdownFactor = 2.0;
+
+    @Value("${app.speculation.min-completed-fraction:0.5}")
+    private double minCompletedFraction = 0.5;
+
+    // partition requests sent by the manager step, by step execution id, resent with the same correlation headers
+    private final Map<Long, Message<?>> requests = new ConcurrentHashMap<>();
+    // attempts of the re-published partitions, by step execution id of every attempt
+    private final Map<Long, Attempts> attempts = new ConcurrentHashMap<>();
+    private final Map<Long, ScheduledFuture<?>> monitors = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public SpeculativeExecutionCoordinator(DataSource dataSource,
+                                           JobExplorer jobExplorer,
+                                           JobRepository jobRepository,
+                                           @Qualifier("requestsChannel") MessageChannel requestsChannel) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.requestsChannel = requestsChannel;
+    }
+
+    @Override
+    public synchronized void beforeStep(StepExecution stepExecution) {
+        if (!enabled) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+                Thread.ofPlatform().name("straggler-monitor").daemon().unstarted(runnable));
+        }
+
+        StragglerDetector detector = new StragglerDetector(slowdownFactor, minCompletedFraction);
+        Set<String> speculated = new HashSet<>();
+        long jobExecutionId = stepExecution.getJobExecutionId();
+        monitors.put(jobExecutionId, scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                List<PartitionProgress> partitions = jdbcTemplate.query(PROGRESS_SQL, (rs, rowNum) -> new PartitionProgress(
+                    rs.getLong("STEP_EXECUTION_ID"),
+                    rs.getString("STEP_NAME"),
+                    BatchStatus.valueOf(rs.getString("STATUS")),
+                    toInstant(rs.getTimestamp("START_TIME")),
+                    toInstant(rs.getTimestamp("END_TIME")),
+                    rs.getLong("READ_COUNT")
+                ), jobExecutionId, PARTITION_NAMES);
+                for (PartitionProgress straggler : detector.stragglers(partitions, Instant.now())) {
+                    if (speculated.add(straggler.stepName())) {
+                        speculate(jobExecutionId, straggler);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn(" >>> straggler detection failed for job execution {}", jobExecutionId, e);
+            }
+        }, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        ScheduledFuture<?> monitor = monitors.remove(stepExecution.getJobExecutionId());
+        if (monitor != null) {
+            monitor.cancel(false);
+        }
+        requests.values().removeIf(request ->
+            ((StepExecutionRequest) request.getPayload()).getJobExecutionId().equals(stepExecution.getJobExecutionId()));
+        attempts.values().removeIf(partition -> partition.jobExecutionId == stepExecution.getJobExecutionId());
+        return stepExecution.getExitStatus();
+    }
+
+    /**
+     * Keeps the partition requests sent to the workers, to re-publish them.
+     */
+    public ChannelInterceptor requestRecorder() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (enabled && message.getPayload() instanceof StepExecutionRequest request) {
+                    requests.putIfAbsent(request.getStepExecutionId(), message);
+                }
+                return message;
+            }
+        };
+    }
+
+    /**
+     * @return whether the reply of the worker is passed to the manager step
+     */
+    public boolean acceptReply(StepExecution reply) {
+        Attempts partition = attempts.get(reply.getId());
+        if (partition == null) {
+            return true;
+        }
+
+        synchronized (partition) {
+            partition.running.remove(reply.getId());
+            if (partition.won) {
+                log.info(" >>> dropped reply of {} [{}], another attempt already completed", reply.getStepName(), reply.getId());
+                return false;
+            }
+            if (reply.getStatus() == BatchStatus.COMPLETED) {
+                partition.won = true;
+                log.info(" >>> attempt [{}] of {} completed first", reply.getId(), reply.getStepName());
+                return true;
+            }
+            if (!partition.running.isEmpty()) {
+                log.info(" >>> dropped reply of {} [{}] with status {}, another attempt is running",
+                    reply.getStepName(), reply.getId(), reply.getStatus());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void speculate(long jobExecutionId, PartitionProgress straggler) {
+        Message<?> request = requests.get(straggler.stepExecutionId());
+        if (request == null) {
+            log.debug(" >>> {} was not sent by this manager, not re-published", straggler.stepName());
+            return;
+        }
+
+        StepExecution original = jobExplorer.getStepExecution(jobExecutionId, straggler.stepExecutionId());
+        if (original == null || original.getStatus() != BatchStatus.STARTED) {
+            return;
+        }
+
+        // continues from the last chunk the straggler committed, with a token that fences off its later writes
+        ExecutionContext executionContext = new ExecutionContext(original.getExecutionContext());
+        executionContext.putInt(FENCING_TOKEN_KEY, executionContext.getInt(FENCING_TOKEN_KEY, 0) + 1);
+        StepExecution attempt = new StepExecution(original.getStepName(), original.getJobExecution());
+        attempt.setExecutionContext(executionContext);
+        jobRepository.add(attempt);
+
+        Attempts partition = new Attempts(jobExecutionId);
+        partition.running.add(original.getId());
+        partition.running.add(attempt.getId());
+        attempts.put(original.getId(), partition);
+        attempts.put(attempt.getId(), partition);
+
+        StepExecutionRequest originalRequest = (StepExecutionRequest) request.getPayload();
+        log.warn(" >>> {} [{}] is a straggler, read {} rows since {}: re-published as [{}]",
+            straggler.stepName(), straggler.stepExecutionId(), straggler.readCount(), straggler.startTime(), attempt.getId());
+        requestsChannel.send(MessageBuilder
+            .withPayload(new StepExecutionRequest(originalRequest.getStepName(), jobExecutionId, attempt.getId()))
+            .copyHeaders(request.getHeaders())
+            .build());
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    private static class Attempts {
+        private final long jobExecutionId;
+        private final Set<Long> running = new HashSet<>();
+        private boolean won;
+
+        Attempts(long jobExecutionId) {
+            this.jobExecutionId = jobExecutionId;
+        }
+    }
+}
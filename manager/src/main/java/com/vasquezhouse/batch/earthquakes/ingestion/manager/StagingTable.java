@@ -0,0 +1,112 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Per job UNLOGGED table of the analytics database the workers load instead of {@code earthquakes}, in staging load
+ * mode.
+ * <p>
+ * The staging table has the columns of the workers' COPY and no index, so loading it writes no WAL and maintains no
+ * index. It is created before the partitions are published and merged into {@code earthquakes} once they all
+ * completed, by a single {@code insert ... select} sorted by time, then dropped. The rollups of the merged rows are
+ * refreshed in the merge transaction. The table is named after the job instance so a restarted job keeps loading and
+ * merges the same table. Rows written twice, by a restarted or re-published partition, and events already stored are
+ * merged like the upsert writer does: the latest USGS revision wins. Rows without an event id are merged once.
+ * <p>
+ * UNLOGGED tables are emptied when postgres recovers from a crash, a job whose staging table was lost must be run again
+ * with new parameters. The ingested files are only recorded in the {@link FileManifest} once the merge completed, so an
+ * incremental job run again picks them up.
+ */
+@Slf4j
+@Component
+public class StagingTable {
+
+    static final String COLUMNS = "time, magnitude, place, state, country, tsunami, significance, mag_type, event_type, " +
+        "felt_reports, cdi, mmi, alert_level, source_id, event_id, source_updated_at";
+
+    private static final String CREATE_SQL = "create unlogged table if not exists %s as " +
+        "select " + COLUMNS + " from earthquakes with no data";
+
+    // the merge writes into partitions that must exist, see create_earthquakes_partition in the analytics migrations
+    private static final String CREATE_PARTITIONS_SQL = "select create_earthquakes_partition(month_of) from (" +
+        "select distinct date_trunc('month', time at time zone 'UTC') at time zone 'UTC' as month_of from %s) months";
+
+    // distinct on keeps the latest revision of every event, on conflict could not update the same row twice. Rows
+    // without an event id can't conflict, they are deduplicated on all their columns and skipped when a row with the
+    // same time, source and place is stored, like the copy writer does
+    private static final String MERGE_SQL = "insert into earthquakes (" + COLUMNS + ") " +
+        "select " + COLUMNS + " from (" +
+        "select distinct on (event_id) * from %1$s where event_id is not null " +
+        "order by event_id, source_updated_at desc nulls last) latest " +
+        "union all select " + COLUMNS + " from (" +
+        "select distinct " + COLUMNS + " from %1$s where event_id is null) unidentified " +
+        "where not exists (select 1 from earthquakes stored where stored.event_id is null " +
+        "and stored.time = unidentified.time and stored.source_id = unidentified.source_id " +
+        "and stored.place = unidentified.place) " +
+        "order by time " +
+        "on conflict (event_id, time) do update set " +
+        "time = excluded.time, magnitude = excluded.magnitude, place = excluded.place, state = excluded.state, " +
+        "country = excluded.country, tsunami = excluded.tsunami, significance = excluded.significance, " +
+        "mag_type = excluded.mag_type, event_type = excluded.event_type, felt_reports = excluded.felt_reports, " +
+        "cdi = excluded.cdi, mmi = excluded.mmi, alert_level = excluded.alert_level, source_id = excluded.source_id, " +
+        "source_updated_at = excluded.source_updated_at, updated_at = current_timestamp " +
+        "where earthquakes.source_updated_at is null or earthquakes.source_updated_at < excluded.source_updated_at";
+
+    // events are unique per time only, an event moved to another time by its latest revision leaves the older row
+    private static final String DELETE_SUPERSEDED_SQL = "delete from earthquakes stored using %s staged " +
+        "where stored.event_id = staged.event_id and stored.time <> staged.time " +
+        "and exists (select 1 from earthquakes newer where newer.event_id = stored.event_id and newer.time <> stored.time " +
+        "and newer.source_updated_at is not null " +
+        "and (stored.source_updated_at is null or stored.source_updated_at < newer.source_updated_at))";
+
+    // the merge and the delete only recorded the buckets they changed, see refresh_earthquake_rollups
+    private static final String REFRESH_ROLLUPS_SQL = "select refresh_earthquake_rollups()";
+
+    private static final String DROP_SQL = "drop table %s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StagingTable(@Qualifier("analyticsDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public static String name(long jobInstanceId) {
+        return "earthquakes_staging_" + jobInstanceId;
+    }
+
+    public RepeatStatus create(StepContribution contribution, ChunkContext chunkContext) {
+        String table = name(chunkContext.getStepContext().getStepExecution().getJobExecution().getJobInstance().getInstanceId());
+        jdbcTemplate.execute(CREATE_SQL.formatted(table));
+        log.info(" >>> staging table [{}] ready", table);
+        return RepeatStatus.FINISHED;
+    }
+
+    public RepeatStatus merge(StepContribution contribution, ChunkContext chunkContext) {
+        String table = name(chunkContext.getStepContext().getStepExecution().getJobExecution().getJobInstance().getInstanceId());
+        long start = System.nanoTime();
+        Integer merged = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList(CREATE_PARTITIONS_SQL.formatted(table), String.class);
+            int rows = jdbcTemplate.update(MERGE_SQL.formatted(table));
+            jdbcTemplate.update(DELETE_SUPERSEDED_SQL.formatted(table));
+            jdbcTemplate.queryForObject(REFRESH_ROLLUPS_SQL, Integer.class);
+            jdbcTemplate.execute(DROP_SQL.formatted(table));
+            return rows;
+        });
+        contribution.incrementWriteCount(merged == null ? 0 : merged);
+        log.info(" >>> merged [{}] rows of staging table [{}] into earthquakes in [{}] ms",
+            merged, table, (System.nanoTime() - start) / 1_000_000);
+        return RepeatStatus.FINISHED;
+    }
+}
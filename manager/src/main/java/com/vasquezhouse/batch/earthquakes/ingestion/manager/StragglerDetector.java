@@ -0,0 +1,77 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.springframework.batch.core.BatchStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the partitions of a job that fall well behind their peers.
+ * <p>
+ * Nothing is a straggler before a share of the partitions completed, they are the reference: a running partition is a
+ * straggler once it runs longer than the median duration of the completed ones times the slowdown factor, while
+ * reading rows slower than their median rate divided by the same factor. A large but healthy partition keeps up with
+ * the rate of its peers and is left alone.
+ */
+public class StragglerDetector {
+
+    private final double slowdownFactor;
+    private final double minCompletedFraction;
+
+    public StragglerDetector(double slowdownFactor, double minCompletedFraction) {
+        if (slowdownFactor <= 1 || minCompletedFraction <= 0 || minCompletedFraction > 1) {
+            throw new IllegalArgumentException(
+                "Invalid straggler detection: factor " + slowdownFactor + ", completed fraction " + minCompletedFraction);
+        }
+        this.slowdownFactor = slowdownFactor;
+        this.minCompletedFraction = minCompletedFraction;
+    }
+
+    public List<PartitionProgress> stragglers(List<PartitionProgress> partitions, Instant now) {
+        List<PartitionProgress> completed = partitions.stream()
+            .filter(partition -> partition.status() == BatchStatus.COMPLETED && partition.endTime() != null)
+            .toList();
+        if (completed.isEmpty() || completed.size() < Math.ceil(partitions.size() * minCompletedFraction)) {
+            return List.of();
+        }
+
+        double medianSeconds = median(completed.stream().mapToDouble(partition -> seconds(partition, partition.endTime())).toArray());
+        double medianRate = median(completed.stream().mapToDouble(partition -> partition.readCount() / seconds(partition, partition.endTime())).toArray());
+
+        List<PartitionProgress> stragglers = new ArrayList<>();
+        for (PartitionProgress partition : partitions) {
+            if (partition.status() != BatchStatus.STARTED || partition.startTime() == null) {
+                continue; // finished, or still waiting in the queue where another worker wouldn't take it any sooner
+            }
+            double elapsed = seconds(partition, now);
+            if (elapsed > medianSeconds * slowdownFactor && partition.readCount() / elapsed < medianRate / slowdownFactor) {
+                stragglers.add(partition);
+            }
+        }
+        return stragglers;
+    }
+
+    private static double seconds(PartitionProgress partition, Instant end) {
+        return Math.max(Duration.between(partition.startTime(), end).toMillis(), 1) / 1000.0;
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    /**
+     * Progress of a partition as recorded by its worker in {@code BATCH_STEP_EXECUTION}.
+     */
+    public record PartitionProgress(long stepExecutionId,
+                                    String stepName,
+                                    BatchStatus status,
+                                    Instant startTime,
+                                    Instant endTime,
+                                    long readCount) {
+    }
+}
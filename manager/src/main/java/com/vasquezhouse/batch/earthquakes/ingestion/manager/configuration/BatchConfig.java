@@ -1,7 +1,11 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.manager.configuration;
 
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.FileManifestListener;
 import com.vasquezhouse.batch.earthquakes.ingestion.manager.FilePartitioner;
 import com.vasquezhouse.batch.earthquakes.ingestion.manager.JobListener;
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.PartitionRepliesChannel;
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.SpeculativeExecutionCoordinator;
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.StagingTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
@@ -11,10 +15,16 @@ import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.integration.config.annotation.EnableBatchIntegration;
-import org.springframework.batch.integration.partition.RemotePartitioningManagerStepBuilderFactory;
+import org.springframework.batch.core.step.builder.PartitionStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.integration.partition.MessageChannelPartitionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.core.MessagingTemplate;
+import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @Slf4j
 @Configuration
@@ -23,26 +33,84 @@ import org.springframework.integration.channel.DirectChannel;
 @RequiredArgsConstructor
 public class BatchConfig {
     
-    private final RemotePartitioningManagerStepBuilderFactory stepBuilderFactory;
     private final FilePartitioner filePartitioner;
     private final JobRepository jobRepository;
     private final JobListener jobListener;
+    private final FileManifestListener fileManifestListener;
+    private final SpeculativeExecutionCoordinator speculativeExecutionCoordinator;
+    private final StagingTable stagingTable;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.grid-size}")
+    private int gridSize;
+
+    // direct: workers write into earthquakes, staging: into a per job staging table merged once all partitions completed
+    @Value("${app.load-mode:direct}")
+    private String loadMode;
     
     @Bean
     public Job earthquakesIngestionJob(Step managerStep) {
-        return new JobBuilder("earthquakesIngestionJob", jobRepository)
+        log.info(" >>> load mode: [{}]", loadMode);
+        JobBuilder jobBuilder = new JobBuilder("earthquakesIngestionJob", jobRepository)
             .incrementer(new RunIdIncrementer())
-            .listener(jobListener)
+            .listener(jobListener);
+
+        if ("staging".equals(loadMode)) {
+            return jobBuilder
+                .start(new StepBuilder("createStagingTableStep", jobRepository)
+                    .tasklet(stagingTable::create, transactionManager)
+                    .build())
+                .next(managerStep)
+                .next(new StepBuilder("mergeStagingTableStep", jobRepository)
+                    .tasklet(stagingTable::merge, transactionManager)
+                    .listener(fileManifestListener)
+                    .build())
+                .build();
+        }
+        return jobBuilder
             .start(managerStep)
             .build();
     }
 
+    // built here rather than by the remote partitioning builder, whose single reply queue is shared by all the jobs
+    @Bean
+    public MessageChannelPartitionHandler partitionHandler(DirectChannel requestsChannel) {
+        MessagingTemplate messagingTemplate = new MessagingTemplate();
+        messagingTemplate.setDefaultChannel(requestsChannel);
+
+        MessageChannelPartitionHandler partitionHandler = new MessageChannelPartitionHandler();
+        partitionHandler.setStepName("workerStep");
+        partitionHandler.setGridSize(gridSize);
+        partitionHandler.setMessagingOperations(messagingTemplate);
+        partitionHandler.setReplyChannel(partitionRepliesChannel());
+        return partitionHandler;
+    }
+
     @Bean
-    public Step managerStep(DirectChannel requestsChannel, DirectChannel repliesChannel) {
-        return stepBuilderFactory.get("managerStep")
+    public PartitionRepliesChannel partitionRepliesChannel() {
+        return new PartitionRepliesChannel();
+    }
+
+    @Bean
+    public IntegrationFlow partitionRepliesFlow(DirectChannel repliesChannel, MessageChannelPartitionHandler partitionHandler) {
+        return IntegrationFlow
+            .from(repliesChannel)
+            .aggregate(aggregator -> aggregator.processor(partitionHandler))
+            .channel(partitionRepliesChannel())
+            .get();
+    }
+
+    @Bean
+    public Step managerStep(MessageChannelPartitionHandler partitionHandler) {
+        PartitionStepBuilder stepBuilder = new StepBuilder("managerStep", jobRepository)
             .partitioner("workerStep", filePartitioner)
-            .outputChannel(requestsChannel)
-            .inputChannel(repliesChannel)
-            .build();
+            .partitionHandler(partitionHandler)
+            .listener(speculativeExecutionCoordinator);
+
+        // in staging mode the files are only ingested once merged, the merge step records them
+        if (!"staging".equals(loadMode)) {
+            stepBuilder.listener(fileManifestListener);
+        }
+        return stepBuilder.build();
     }
 }
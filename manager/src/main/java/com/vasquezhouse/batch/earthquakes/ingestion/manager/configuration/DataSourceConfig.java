@@ -0,0 +1,18 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DataSourceConfig {
+
+    // only injected by name, the batch data source stays the auto-configured one. Connects on first use, in staging
+    // load mode only
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("spring.datasource.analytics")
+    public HikariDataSource analyticsDataSource() {
+        return new HikariDataSource();
+    }
+}
@@ -1,12 +1,20 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.manager.configuration;
 
+import com.vasquezhouse.batch.CompactMessageConverter;
+import com.vasquezhouse.batch.FileIngestionJobRequestCodec;
+import com.vasquezhouse.batch.StepExecutionCodec;
+import com.vasquezhouse.batch.StepExecutionRequestCodec;
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.SpeculativeExecutionCoordinator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +25,8 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.support.ChannelInterceptor;
 
+import java.util.List;
+
 @Slf4j
 @Configuration
 public class RabbitConfig {
@@ -32,7 +42,20 @@ public class RabbitConfig {
 
     @Value("${app.worker-replies-queue}")
     private String workerRepliesQueueName;
+
+    @Value("${app.dataset-changed-exchange}")
+    private String datasetChangedExchangeName;
     
+    // used by the rabbit template and the job request listener too
+    @Bean
+    public MessageConverter messageConverter() {
+        return new CompactMessageConverter(List.of(
+            new FileIngestionJobRequestCodec(),
+            new StepExecutionRequestCodec(),
+            new StepExecutionCodec()
+        ));
+    }
+
     @Bean
     public TopicExchange jobRequestsExchange() {
         return new TopicExchange(jobRequestsExchangeName);
@@ -50,6 +73,12 @@ public class RabbitConfig {
             .with("");
     }
     
+    // completed jobs are announced to every analytics API instance, each one binds its own queue
+    @Bean
+    public FanoutExchange datasetChangedExchange() {
+        return new FanoutExchange(datasetChangedExchangeName);
+    }
+
     @Bean
     public Queue workerRequestsQueue() {
         return new Queue(workerRequestsQueueName, true);
@@ -61,17 +90,20 @@ public class RabbitConfig {
     }
 
     @Bean
-    public IntegrationFlow workerRequestsFlow(AmqpTemplate amqpTemplate) {
+    public IntegrationFlow workerRequestsFlow(AmqpTemplate amqpTemplate, SpeculativeExecutionCoordinator speculativeExecution) {
         return IntegrationFlow
             .from(requestsChannel())
+            .intercept(speculativeExecution.requestRecorder())
             .handle(Amqp.outboundAdapter(amqpTemplate).routingKey(workerRequestsQueueName))
             .get();
     }
 
     @Bean
-    public IntegrationFlow workerRepliesFlow(ConnectionFactory connectionFactory) {
+    public IntegrationFlow workerRepliesFlow(ConnectionFactory connectionFactory, SpeculativeExecutionCoordinator speculativeExecution) {
         return IntegrationFlow
-            .from(Amqp.inboundAdapter(connectionFactory, workerRepliesQueueName))
+            .from(Amqp.inboundAdapter(connectionFactory, workerRepliesQueueName).messageConverter(messageConverter()))
+            // one reply per partition, when a straggler partition was re-published
+            .filter(StepExecution.class, speculativeExecution::acceptReply)
             .channel(repliesChannel())
             .get();
     }
@@ -0,0 +1,10 @@
+-- Manifest of the input files already ingested, used by the incremental ingestion mode
+CREATE TABLE ingested_files
+(
+    path             VARCHAR(1024) PRIMARY KEY,
+    size_bytes       BIGINT        NOT NULL,
+    last_modified    TIMESTAMP     NOT NULL,
+    content_hash     VARCHAR(64)   NOT NULL,
+    job_execution_id BIGINT        NOT NULL,
+    ingested_at      TIMESTAMP     NOT NULL
+);
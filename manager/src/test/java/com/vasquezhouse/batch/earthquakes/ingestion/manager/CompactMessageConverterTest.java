@@ -0,0 +1,167 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import com.vasquezhouse.batch.CompactMessageConverter;
+import com.vasquezhouse.batch.FileIngestionJobRequest;
+import com.vasquezhouse.batch.FileIngestionJobRequestCodec;
+import com.vasquezhouse.batch.StepExecutionCodec;
+import com.vasquezhouse.batch.StepExecutionRequestCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.integration.partition.StepExecutionRequest;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompactMessageConverterTest {
+
+    private final CompactMessageConverter converter = new CompactMessageConverter(List.of(
+        new FileIngestionJobRequestCodec(),
+        new StepExecutionRequestCodec(),
+        new StepExecutionCodec()
+    ));
+
+    @Test
+    void roundTripsJobRequests() {
+        // arrange
+        FileIngestionJobRequest request = new FileIngestionJobRequest();
+        request.setJobId("test-2024-12-12-12-12");
+        request.setJobType("earthquake-ingestion-job");
+        request.setDataDirectory("earthquakes");
+        request.setPriority(10);
+
+        // act
+        Object decoded = roundTrip(request);
+
+        // assert
+        assertThat(decoded).isEqualTo(request);
+    }
+
+    @Test
+    void roundTripsPartitionRequests() {
+        // act
+        StepExecutionRequest decoded = (StepExecutionRequest) roundTrip(new StepExecutionRequest("workerStep", 42L, 7L));
+
+        // assert
+        assertThat(decoded.getStepName()).isEqualTo("workerStep");
+        assertThat(decoded.getJobExecutionId()).isEqualTo(42L);
+        assertThat(decoded.getStepExecutionId()).isEqualTo(7L);
+    }
+
+    @Test
+    void sendsWhatTheManagerStepAggregatesInPartitionReplies() {
+        // arrange
+        StepExecution reply = partitionReply();
+
+        // act
+        StepExecution decoded = (StepExecution) roundTrip(reply);
+
+        // assert
+        assertThat(decoded.getId()).isEqualTo(reply.getId());
+        assertThat(decoded.getJobExecutionId()).isEqualTo(reply.getJobExecutionId());
+        assertThat(decoded.getStepName()).isEqualTo("workerStep:partition3");
+        assertThat(decoded.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(decoded.getExitStatus()).isEqualTo(reply.getExitStatus());
+        assertThat(decoded.getExitStatus().getExitDescription()).isEqualTo(reply.getExitStatus().getExitDescription());
+        assertThat(decoded.getReadCount()).isEqualTo(125_000);
+        assertThat(decoded.getWriteCount()).isEqualTo(124_990);
+        assertThat(decoded.getCommitCount()).isEqualTo(125);
+        assertThat(decoded.getRollbackCount()).isEqualTo(1);
+        assertThat(decoded.getFilterCount()).isEqualTo(2);
+        assertThat(decoded.getReadSkipCount()).isEqualTo(3);
+        assertThat(decoded.getProcessSkipCount()).isEqualTo(4);
+        assertThat(decoded.getWriteSkipCount()).isEqualTo(1);
+        assertThat(decoded.getStartTime()).isEqualTo(reply.getStartTime());
+        assertThat(decoded.getEndTime()).isEqualTo(reply.getEndTime());
+        assertThat(decoded.getExecutionContext().isEmpty()).isTrue();
+    }
+
+    @Test
+    void isSmallerThanJavaSerialization() {
+        // arrange
+        StepExecution reply = partitionReply();
+        reply.setStatus(BatchStatus.COMPLETED);
+        reply.setExitStatus(ExitStatus.COMPLETED);
+
+        // act
+        int compact = converter.toMessage(reply, new MessageProperties()).getBody().length;
+        int serialized = new SimpleMessageConverter().toMessage(reply, new MessageProperties()).getBody().length;
+
+        // assert
+        assertThat(compact).isLessThan(serialized / 10);
+    }
+
+    @Test
+    void convertsTextAndRejectsJavaSerializedMessages() {
+        // arrange
+        Message serialized = new SimpleMessageConverter().toMessage(new StepExecutionRequest("workerStep", 42L, 7L), new MessageProperties());
+
+        // act
+        Message text = converter.toMessage("42", new MessageProperties());
+
+        // assert
+        assertThat(text.getMessageProperties().getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+        assertThat(converter.fromMessage(text)).isEqualTo("42");
+        assertThatThrownBy(() -> converter.fromMessage(serialized)).isInstanceOf(MessageConversionException.class);
+        assertThatThrownBy(() -> converter.toMessage(new InetSocketAddress(8080), new MessageProperties()))
+            .isInstanceOf(MessageConversionException.class);
+    }
+
+    private Object roundTrip(Object payload) {
+        Message message = converter.toMessage(payload, new MessageProperties());
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(CompactMessageConverter.CONTENT_TYPE);
+        return converter.fromMessage(message);
+    }
+
+    // a partition as loaded by the worker from the job repository, with its job execution and partition context
+    static StepExecution partitionReply() {
+        JobExecution jobExecution = new JobExecution(new JobInstance(3L, "earthquakesIngestionJob"), 42L,
+            new JobParametersBuilder()
+                .addString("jobId", "test-2024-12-12-12-12", true)
+                .addString("dataDirectory", "earthquakes")
+                .toJobParameters());
+        jobExecution.setStartTime(LocalDateTime.of(2024, 12, 12, 12, 12, 0));
+        for (int i = 0; i < 6; i++) {
+            StepExecution partition = jobExecution.createStepExecution("workerStep:partition" + i);
+            partition.setId(100L + i);
+            partition.getExecutionContext().putInt("fileCount", 1);
+            partition.getExecutionContext().putString("fileName.0", "/app/data/earthquakes/earthquakes-" + i + ".csv");
+            partition.getExecutionContext().putLong("startOffset.0", 0);
+            partition.getExecutionContext().putLong("endOffset.0", 64L << 20);
+            partition.getExecutionContext().putString("worker-id", "worker-" + i);
+        }
+        jobExecution.createStepExecution("managerStep").setId(99L);
+
+        StepExecution reply = jobExecution.getStepExecutions().stream()
+            .filter(stepExecution -> stepExecution.getStepName().equals("workerStep:partition3"))
+            .findFirst()
+            .orElseThrow();
+        reply.setVersion(130);
+        reply.setStatus(BatchStatus.FAILED);
+        reply.setExitStatus(ExitStatus.FAILED.addExitDescription(new IllegalStateException("Connection refused")));
+        reply.setReadCount(125_000);
+        reply.setWriteCount(124_990);
+        reply.setCommitCount(125);
+        reply.setRollbackCount(1);
+        reply.setFilterCount(2);
+        reply.setReadSkipCount(3);
+        reply.setProcessSkipCount(4);
+        reply.setWriteSkipCount(1);
+        reply.setStartTime(LocalDateTime.of(2024, 12, 12, 12, 12, 1, 123_000_000));
+        reply.setEndTime(LocalDateTime.of(2024, 12, 12, 12, 20, 1));
+        reply.setLastUpdated(reply.getEndTime());
+        return reply;
+    }
+}
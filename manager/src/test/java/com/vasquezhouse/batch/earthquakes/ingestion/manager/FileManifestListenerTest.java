@@ -0,0 +1,133 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class FileManifestListenerTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-batch")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    @TempDir
+    Path tempDir;
+
+    private JobRepository jobRepository;
+    private FileManifest fileManifest;
+    private FileManifestListener listener;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        JobRepositoryFactoryBean repositoryFactory = new JobRepositoryFactoryBean();
+        repositoryFactory.setDataSource(dataSource);
+        repositoryFactory.setTransactionManager(transactionManager);
+        repositoryFactory.afterPropertiesSet();
+        jobRepository = repositoryFactory.getObject();
+
+        JobExplorerFactoryBean explorerFactory = new JobExplorerFactoryBean();
+        explorerFactory.setDataSource(dataSource);
+        explorerFactory.setTransactionManager(transactionManager);
+        explorerFactory.afterPropertiesSet();
+        JobExplorer jobExplorer = explorerFactory.getObject();
+
+        fileManifest = new FileManifest(dataSource);
+        listener = new FileManifestListener(jobExplorer, fileManifest);
+    }
+
+    @Test
+    void filesOfAFailedMergeStayPending() throws Exception {
+        // arrange: the partition loaded the staging table, the merge into earthquakes failed
+        File file = writeFile("earthquakes-1.csv", "alert,cdi\ngreen,4.4\n");
+        JobExecution jobExecution = stagingJob(file);
+        StepExecution merge = step(jobExecution, "mergeStagingTableStep", BatchStatus.FAILED);
+
+        // act
+        listener.afterStep(merge);
+
+        // assert
+        assertThat(fileManifest.pending(new File[]{file})).extracting(FileFingerprint::path)
+            .containsExactly(file.getAbsolutePath());
+    }
+
+    @Test
+    void filesOfACompletedMergeAreRecorded() throws Exception {
+        // arrange
+        File file = writeFile("earthquakes-1.csv", "alert,cdi\ngreen,4.4\n");
+        JobExecution jobExecution = stagingJob(file);
+        StepExecution merge = step(jobExecution, "mergeStagingTableStep", BatchStatus.COMPLETED);
+
+        // act
+        listener.afterStep(merge);
+
+        // assert
+        assertThat(fileManifest.pending(new File[]{file})).isEmpty();
+    }
+
+    // a staging job whose single partition, reading the whole file, and manager step completed
+    private JobExecution stagingJob(File file) throws Exception {
+        JobExecution jobExecution = jobRepository.createJobExecution("earthquakesIngestionJob",
+            new JobParametersBuilder().addString("jobId", UUID.randomUUID().toString()).toJobParameters());
+        step(jobExecution, "createStagingTableStep", BatchStatus.COMPLETED);
+
+        StepExecution partition = jobExecution.createStepExecution("workerStep:partition0");
+        partition.getExecutionContext().putInt("fileCount", 1);
+        partition.getExecutionContext().putString("filename.0", file.getAbsolutePath());
+        FileFingerprint.of(file).putInto(partition.getExecutionContext(), 0);
+        partition.setStatus(BatchStatus.COMPLETED);
+        jobRepository.add(partition);
+
+        // in staging mode the listener is only registered on the merge step
+        step(jobExecution, FileManifestListener.MANAGER_STEP, BatchStatus.COMPLETED);
+        return jobExecution;
+    }
+
+    private StepExecution step(JobExecution jobExecution, String stepName, BatchStatus status) {
+        StepExecution stepExecution = jobExecution.createStepExecution(stepName);
+        stepExecution.setStatus(status);
+        jobRepository.add(stepExecution);
+        return stepExecution;
+    }
+
+    private File writeFile(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+}
@@ -0,0 +1,122 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// postgres rather than h2, the manifest is recorded with insert ... on conflict
+@Testcontainers
+public class FileManifestTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-batch")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    @TempDir
+    Path tempDir;
+
+    private DriverManagerDataSource dataSource;
+    private FileManifest fileManifest;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+
+        fileManifest = new FileManifest(dataSource);
+    }
+
+    @Test
+    void newFilesArePending() throws IOException {
+        // arrange
+        File first = writeFile("earthquakes-1.csv", "alert,cdi\ngreen,4.4\n");
+        File second = writeFile("earthquakes-2.csv", "alert,cdi\nred,2.1\n");
+
+        // act
+        List<FileFingerprint> pending = fileManifest.pending(new File[]{first, second});
+
+        // assert
+        assertThat(pending).extracting(FileFingerprint::path)
+            .containsExactlyInAnyOrder(first.getAbsolutePath(), second.getAbsolutePath());
+        assertThat(pending.get(0).contentHash()).hasSize(64);
+    }
+
+    @Test
+    void ingestedFilesAreNotPendingUntilTheirContentChanges() throws IOException {
+        // arrange
+        File unchanged = writeFile("earthquakes-1.csv", "alert,cdi\ngreen,4.4\n");
+        File touched = writeFile("earthquakes-2.csv", "alert,cdi\nred,2.1\n");
+        File changed = writeFile("earthquakes-3.csv", "alert,cdi\nyellow,3.0\n");
+        File[] files = {unchanged, touched, changed};
+        fileManifest.recordIngested(fileManifest.pending(files), 1L);
+
+        // act
+        Files.setLastModifiedTime(touched.toPath(), FileTime.fromMillis(touched.lastModified() + 60_000));
+        Files.writeString(changed.toPath(), "alert,cdi\nyellow,3.0\norange,3.5\n");
+        List<FileFingerprint> pending = fileManifest.pending(files);
+
+        // assert
+        assertThat(pending).extracting(FileFingerprint::path).containsExactly(changed.getAbsolutePath());
+
+        fileManifest.recordIngested(pending, 2L);
+        assertThat(fileManifest.pending(files)).isEmpty();
+    }
+
+    @Test
+    void concurrentJobsRecordingTheSameNewFileKeepOneEntry() throws Exception {
+        // arrange
+        File file = writeFile("earthquakes-1.csv", "alert,cdi\ngreen,4.4\n");
+        List<FileFingerprint> pending = fileManifest.pending(new File[]{file});
+        CountDownLatch start = new CountDownLatch(1);
+
+        // act
+        List<CompletableFuture<Void>> jobs = List.of(1L, 2L, 3L, 4L).stream()
+            .map(jobExecutionId -> CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                fileManifest.recordIngested(pending, jobExecutionId);
+            }))
+            .toList();
+        start.countDown();
+        CompletableFuture.allOf(jobs.toArray(CompletableFuture[]::new)).join();
+
+        // assert
+        assertThat(new JdbcTemplate(dataSource).queryForObject(
+            "select count(*) from ingested_files where path = ?", Integer.class, file.getAbsolutePath())).isEqualTo(1);
+        assertThat(fileManifest.pending(new File[]{file})).isEmpty();
+    }
+
+    private File writeFile(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+}
@@ -0,0 +1,189 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilePartitionerTest {
+
+    private static final String HEADER = "alert,cdi,place,time\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void wholeFilesWhenSmallerThanMinSplitSize() throws IOException {
+        // arrange
+        writeFile("earthquakes-1.csv", 10);
+        writeFile("earthquakes-2.csv", 10);
+        writeFile("other-data.csv", 10);
+
+        FilePartitioner partitioner = createPartitioner(DataSize.ofMegabytes(64));
+
+        // act
+        Map<String, ExecutionContext> partitions = partitioner.partition(6);
+
+        // assert
+        List<long[]> ranges = ranges(partitions);
+        assertThat(partitions).hasSize(2);
+        assertThat(ranges).hasSize(2);
+        for (ExecutionContext context : partitions.values()) {
+            assertThat(context.getInt("fileCount")).isEqualTo(1);
+            assertThat(context.getLong("startOffset.0")).isZero();
+            assertThat(context.getLong("endOffset.0")).isEqualTo(Files.size(Path.of(context.getString("filename.0"))));
+        }
+    }
+
+    @Test
+    void packsManySmallFilesInGridSizePartitions() throws IOException {
+        // arrange
+        long totalSize = 0;
+        for (int i = 0; i < 40; i++) {
+            totalSize += Files.size(writeFile("earthquakes-" + i + ".csv", 1 + i % 7));
+        }
+
+        FilePartitioner partitioner = createPartitioner(DataSize.ofMegabytes(64));
+
+        // act
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        // assert
+        assertThat(partitions).hasSize(4);
+
+        long[] loads = partitions.values().stream()
+            .mapToLong(FilePartitionerTest::partitionSize)
+            .sorted()
+            .toArray();
+        assertThat(LongStream.of(loads).sum()).isEqualTo(totalSize);
+        // longest-processing-time-first keeps partitions within one file of each other
+        assertThat(loads[loads.length - 1] - loads[0]).isLessThan(Files.size(tempDir.resolve("earthquakes-6.csv")));
+    }
+
+    @Test
+    void splitsLargeFileInRecordAlignedRanges() throws IOException {
+        // arrange
+        Path file = writeFile("earthquakes-big.csv", 500);
+        String content = Files.readString(file);
+        Set<Long> recordStarts = recordStarts(content);
+
+        FilePartitioner partitioner = createPartitioner(DataSize.ofBytes(1024));
+
+        // act
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        // assert
+        assertThat(partitions).hasSize(4);
+
+        List<long[]> ranges = ranges(partitions).stream()
+            .sorted(Comparator.comparingLong(range -> range[0]))
+            .toList();
+
+        long expectedStart = 0;
+        for (long[] range : ranges) {
+            long start = range[0];
+            assertThat(start).isEqualTo(expectedStart);
+            assertThat(start == 0 || recordStarts.contains(start))
+                .as("range starting at %d is aligned to a record", start)
+                .isTrue();
+            expectedStart = range[1];
+        }
+        assertThat(expectedStart).isEqualTo(Files.size(file));
+    }
+
+    @Test
+    void readsCompressedFilesWhole() throws IOException {
+        // arrange
+        Path plain = writeFile("earthquakes-1.csv", 500);
+        Path gzip = tempDir.resolve("earthquakes-2.csv.gz");
+        Files.copy(plain, gzip);
+        Path zstd = tempDir.resolve("earthquakes-3.csv.zst");
+        Files.copy(plain, zstd);
+        Files.copy(plain, tempDir.resolve("earthquakes-4.gz"));
+
+        FilePartitioner partitioner = createPartitioner(DataSize.ofBytes(1024));
+
+        // act
+        Map<String, ExecutionContext> partitions = partitioner.partition(8);
+
+        // assert: compressed files can't be split, they get a range without offsets
+        List<String> compressed = new ArrayList<>();
+        for (ExecutionContext context : partitions.values()) {
+            for (int i = 0; i < context.getInt("fileCount"); i++) {
+                String filename = context.getString("filename." + i);
+                if (!filename.endsWith(".csv")) {
+                    compressed.add(Path.of(filename).getFileName().toString());
+                    assertThat(context.containsKey("startOffset." + i)).isFalse();
+                    assertThat(context.containsKey("endOffset." + i)).isFalse();
+                }
+            }
+        }
+        assertThat(compressed).containsExactlyInAnyOrder("earthquakes-2.csv.gz", "earthquakes-3.csv.zst");
+    }
+
+    private FilePartitioner createPartitioner(DataSize minSplitSize) {
+        FilePartitioner partitioner = new FilePartitioner();
+        ReflectionTestUtils.setField(partitioner, "inputDirectory", tempDir.toString());
+        ReflectionTestUtils.setField(partitioner, "subDirectory", ".");
+        ReflectionTestUtils.setField(partitioner, "minSplitSize", minSplitSize);
+        return partitioner;
+    }
+
+    // every fifth record has a line break inside a quoted field, which must never be picked as a boundary
+    private Path writeFile(String name, int records) throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < records; i++) {
+            String place = i % 5 == 0
+                ? "\"" + i + "km NE of\nAguanga, CA\""
+                : "\"" + i + "km NE of Aguanga, CA\"";
+            content.append("green,4.4,").append(place).append(",1539475062610\n");
+        }
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static List<long[]> ranges(Map<String, ExecutionContext> partitions) {
+        List<long[]> ranges = new ArrayList<>();
+        for (ExecutionContext context : partitions.values()) {
+            for (int i = 0; i < context.getInt("fileCount"); i++) {
+                ranges.add(new long[]{context.getLong("startOffset." + i), context.getLong("endOffset." + i)});
+            }
+        }
+        return ranges;
+    }
+
+    private static long partitionSize(ExecutionContext context) {
+        long size = 0;
+        for (int i = 0; i < context.getInt("fileCount"); i++) {
+            size += context.getLong("endOffset." + i) - context.getLong("startOffset." + i);
+        }
+        return size;
+    }
+
+    private static Set<Long> recordStarts(String content) {
+        Set<Long> starts = new HashSet<>();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        boolean inQuotes = false;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '"') inQuotes = !inQuotes;
+            if (bytes[i] == '\n' && !inQuotes) starts.add((long) i + 1);
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,76 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import com.vasquezhouse.batch.CompactMessageConverter;
+import com.vasquezhouse.batch.StepExecutionCodec;
+import com.vasquezhouse.batch.StepExecutionRequestCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.integration.partition.StepExecutionRequest;
+
+import java.util.List;
+
+/**
+ * Compares the compact message converter against Java serialization for partition requests and replies. Disabled by
+ * default, run it with:
+ * <pre>
+ * ./mvnw test -Dtest=MessageConverterBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class MessageConverterBenchmarkTest {
+
+    private static final int MESSAGES = 200_000;
+    private static final int WARMUP_MESSAGES = 50_000;
+
+    @Test
+    void comparesConverters() {
+        SimpleMessageConverter javaSerialization = new SimpleMessageConverter();
+        javaSerialization.setAllowedListPatterns(List.of("*"));
+        CompactMessageConverter compact = new CompactMessageConverter(List.of(
+            new StepExecutionRequestCodec(),
+            new StepExecutionCodec()
+        ));
+
+        StepExecution reply = CompactMessageConverterTest.partitionReply();
+        reply.setStatus(BatchStatus.COMPLETED);
+        reply.setExitStatus(ExitStatus.COMPLETED);
+        StepExecutionRequest request = new StepExecutionRequest("workerStep", 42L, 103L);
+
+        for (Object payload : List.of(request, reply)) {
+            String name = payload.getClass().getSimpleName();
+            report(name, "java serialization", javaSerialization, payload);
+            report(name, "compact", compact, payload);
+        }
+    }
+
+    private static void report(String payloadName, String converterName, MessageConverter converter, Object payload) {
+        int size = converter.toMessage(payload, new MessageProperties()).getBody().length;
+        measure(converter, payload, WARMUP_MESSAGES);
+        long nanos = measure(converter, payload, MESSAGES);
+        log.info(" >>> {} {}: {} bytes, {} ns per encode and decode",
+            payloadName, converterName, size, nanos / MESSAGES);
+    }
+
+    private static long measure(MessageConverter converter, Object payload, int messages) {
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            Message message = converter.toMessage(payload, new MessageProperties());
+            checksum += converter.fromMessage(message).hashCode();
+        }
+        long nanos = System.nanoTime() - start;
+        if (checksum == 42) {
+            log.trace(" >>> keeps the decoded messages alive");
+        }
+        return nanos;
+    }
+}
@@ -0,0 +1,124 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriorityJobLauncherTest {
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final CountDownLatch blocking = new CountDownLatch(1);
+
+    private JobRepository jobRepository;
+    private PriorityJobLauncher jobLauncher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setTransactionManager(new DataSourceTransactionManager(dataSource));
+        factory.afterPropertiesSet();
+        jobRepository = factory.getObject();
+
+        jobLauncher = new PriorityJobLauncher(jobRepository, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blocking.countDown();
+        jobLauncher.shutdown();
+    }
+
+    @Test
+    void runsWaitingJobsByPriority() throws Exception {
+        // arrange: a long job takes the only slot
+        CountDownLatch finished = new CountDownLatch(3);
+        Job job = job(finished);
+        jobLauncher.launch(job, parameters("backfill"), 0);
+
+        // act
+        JobExecution hourly = jobLauncher.launch(job, parameters("hourly"), 0);
+        JobExecution urgent = jobLauncher.launch(job, parameters("urgent"), 10);
+        BatchStatus queuedStatus = urgent.getStatus();
+        blocking.countDown();
+
+        // assert
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queuedStatus).isEqualTo(BatchStatus.STARTING);
+        assertThat(started).containsExactly("backfill", "urgent", "hourly");
+        assertThat(hourly.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void marksWaitingJobsAsFailedOnShutdown() throws Exception {
+        // arrange
+        Job job = job(new CountDownLatch(2));
+        jobLauncher.launch(job, parameters("backfill"), 0);
+        JobExecution hourly = jobLauncher.launch(job, parameters("hourly"), 0);
+
+        // act
+        jobLauncher.shutdown();
+
+        // assert
+        assertThat(jobRepository.getLastJobExecution("test-job", parameters("hourly")).getStatus())
+            .isEqualTo(BatchStatus.FAILED);
+        assertThat(hourly.getExitStatus().getExitDescription()).contains("shut down");
+    }
+
+    // the backfill job holds its slot until released by the test
+    private Job job(CountDownLatch finished) {
+        return new Job() {
+            @Override
+            public String getName() {
+                return "test-job";
+            }
+
+            @Override
+            public void execute(JobExecution execution) {
+                String jobId = execution.getJobParameters().getString("jobId");
+                started.add(jobId);
+                try {
+                    if ("backfill".equals(jobId)) {
+                        blocking.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                execution.setStatus(BatchStatus.COMPLETED);
+                finished.countDown();
+            }
+        };
+    }
+
+    private static JobParameters parameters(String jobId) {
+        return new JobParametersBuilder().addString("jobId", jobId).toJobParameters();
+    }
+}
@@ -0,0 +1,82 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class StagingTableTest {
+
+    // a row of the staging table, as copied by a worker: the event id is the second to last column
+    private static final String STAGED_ROW = "insert into %s (" + StagingTable.COLUMNS + ") values " +
+        "(timestamptz '2018-10-13T23:59:28.010Z', 4.2, '9km NE of Aguanga, CA', 'CA', 'US', false, 300, 'ml', " +
+        "'Earthquake', 3, null, null, null, ',ci,', %s, timestamptz '2018-10-14T00:03:15.144Z')";
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private JdbcTemplate jdbcTemplate;
+    private StagingTable stagingTable;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        // the analytics schema is migrated by the workers
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("filesystem:../worker/src/main/resources/db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+        stagingTable = new StagingTable(dataSource);
+    }
+
+    @Test
+    void mergesRowsOfAReplayedPartitionOnce() {
+        // arrange: a restarted partition copied its rows, one of them without event id, a second time
+        StepExecution stepExecution = mergeStep();
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+        StepContribution contribution = stepExecution.createStepContribution();
+        stagingTable.create(contribution, chunkContext);
+        String table = StagingTable.name(stepExecution.getJobExecution().getJobInstance().getInstanceId());
+        for (int attempt = 0; attempt < 2; attempt++) {
+            jdbcTemplate.update(STAGED_ROW.formatted(table, "'ci37389218'"));
+            jdbcTemplate.update(STAGED_ROW.formatted(table, "null"));
+        }
+
+        // act
+        stagingTable.merge(contribution, chunkContext);
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM earthquakes WHERE event_id IS NULL", Integer.class))
+            .isEqualTo(1);
+    }
+
+    private static StepExecution mergeStep() {
+        JobExecution jobExecution = MetaDataInstanceFactory.createJobExecution();
+        return jobExecution.createStepExecution("mergeStagingTableStep");
+    }
+}
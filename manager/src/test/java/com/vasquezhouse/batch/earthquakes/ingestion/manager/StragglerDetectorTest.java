@@ -0,0 +1,86 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.manager;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.manager.StragglerDetector.PartitionProgress;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StragglerDetectorTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final StragglerDetector detector = new StragglerDetector(2.0, 0.5);
+
+    @Test
+    void findsPartitionsFarBehindTheCompletedOnes() {
+        // arrange: completed partitions read 10000 rows in about 100 seconds
+        List<PartitionProgress> partitions = List.of(
+            completed(0, 100, 10_000),
+            completed(1, 90, 10_000),
+            completed(2, 110, 10_000),
+            running(3, 1_000),
+            running(4, 35_000),
+            waiting(5)
+        );
+
+        // act
+        List<PartitionProgress> stragglers = detector.stragglers(partitions, START.plusSeconds(300));
+
+        // assert: the large partition keeps the pace of its peers, the waiting one isn't running anywhere yet
+        assertThat(stragglers).extracting(PartitionProgress::stepName).containsExactly("workerStep:partition3");
+    }
+
+    @Test
+    void waitsForEnoughCompletedPartitions() {
+        // arrange
+        List<PartitionProgress> partitions = List.of(
+            completed(0, 100, 10_000),
+            completed(1, 100, 10_000),
+            running(2, 10),
+            running(3, 10),
+            running(4, 10),
+            running(5, 10)
+        );
+
+        // act
+        List<PartitionProgress> stragglers = detector.stragglers(partitions, START.plusSeconds(3_600));
+
+        // assert
+        assertThat(stragglers).isEmpty();
+    }
+
+    @Test
+    void leavesPartitionsWithinTheSlowdownFactor() {
+        // arrange
+        List<PartitionProgress> partitions = List.of(
+            completed(0, 100, 10_000),
+            completed(1, 100, 10_000),
+            running(2, 1_000)
+        );
+
+        // act
+        List<PartitionProgress> stragglers = detector.stragglers(partitions, START.plusSeconds(150));
+
+        // assert
+        assertThat(stragglers).isEmpty();
+    }
+
+    private static PartitionProgress completed(int partition, long seconds, long readCount) {
+        return new PartitionProgress(partition, "workerStep:partition" + partition, BatchStatus.COMPLETED,
+            START, START.plusSeconds(seconds), readCount);
+    }
+
+    private static PartitionProgress running(int partition, long readCount) {
+        return new PartitionProgress(partition, "workerStep:partition" + partition, BatchStatus.STARTED,
+            START, null, readCount);
+    }
+
+    private static PartitionProgress waiting(int partition) {
+        return new PartitionProgress(partition, "workerStep:partition" + partition, BatchStatus.STARTING,
+            null, null, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.vasquezhouse.batch;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Encodes the messages exchanged by the apps field by field with the given codecs, instead of Java serialization.
+// Besides them only plain text and raw bytes are converted, other payloads and content types, Java serialized objects
+// among them, are rejected.
+// Copied as is into manager, worker and job-mgmt-api, like FileIngestionJobRequest: each app is a Maven project of its
+// own, built in its own Docker context, there is no shared module to put it in. Every app registers the codecs of the
+// messages it exchanges, changes go to all copies.
+public class CompactMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-batch-compact";
+
+    // first byte of every body, bumped when the layout of a codec changes
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<String, Codec<?>> codecsByType = new HashMap<>();
+    private final Map<Class<?>, Codec<?>> codecsByClass = new HashMap<>();
+    // never handed a Java serialized message, see fromMessage
+    private final SimpleMessageConverter fallback = new SimpleMessageConverter();
+
+    public CompactMessageConverter(List<Codec<?>> codecs) {
+        for (Codec<?> codec : codecs) {
+            codecsByType.put(codec.type(), codec);
+            codecsByClass.put(codec.javaType(), codec);
+        }
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        Codec<?> codec = codecsByClass.get(object.getClass());
+        if (codec == null) {
+            if (object instanceof String || object instanceof byte[]) {
+                return fallback.toMessage(object, messageProperties);
+            }
+            throw new MessageConversionException("No codec for " + object.getClass().getName());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(codec.type());
+            write(codec, object, out);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to encode " + codec.type(), e);
+        }
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(bytes.size());
+        return new Message(bytes.toByteArray(), messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        String contentType = message.getMessageProperties().getContentType();
+        if (MessageProperties.CONTENT_TYPE_TEXT_PLAIN.equals(contentType)
+            || MessageProperties.CONTENT_TYPE_BYTES.equals(contentType)) {
+            return fallback.fromMessage(message);
+        }
+        if (!CONTENT_TYPE.equals(contentType)) {
+            throw new MessageConversionException("Unsupported content type " + contentType);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message.getBody()))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new MessageConversionException("Unsupported message format version " + version);
+            }
+            String type = in.readUTF();
+            Codec<?> codec = codecsByType.get(type);
+            if (codec == null) {
+                throw new MessageConversionException("No codec for message type " + type);
+            }
+            return codec.read(in);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode message", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(Codec<T> codec, Object object, DataOutput out) throws IOException {
+        codec.write((T) object, out);
+    }
+
+    public interface Codec<T> {
+
+        // written in every message, must never change for a given message class
+        String type();
+
+        Class<T> javaType();
+
+        void write(T value, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    // unlike writeUTF, null and strings longer than 64 KB such as stack traces are fine
+    public static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeDateTime(LocalDateTime value, DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    public static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
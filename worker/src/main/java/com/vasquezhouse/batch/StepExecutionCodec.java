@@ -0,0 +1,72 @@
+package com.vasquezhouse.batch;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Kept in the package common to the manager and the workers, which reply with the step execution of each partition.
+// Only what the manager step aggregates is sent: status and counts. The execution context and the job execution stay
+// in the job repository, the decoded step execution only references its job execution by id.
+public class StepExecutionCodec implements CompactMessageConverter.Codec<StepExecution> {
+
+    @Override
+    public String type() {
+        return "step-execution";
+    }
+
+    @Override
+    public Class<StepExecution> javaType() {
+        return StepExecution.class;
+    }
+
+    @Override
+    public void write(StepExecution stepExecution, DataOutput out) throws IOException {
+        out.writeLong(stepExecution.getId());
+        out.writeLong(stepExecution.getJobExecutionId());
+        CompactMessageConverter.writeString(stepExecution.getStepName(), out);
+        out.writeInt(stepExecution.getVersion() == null ? 0 : stepExecution.getVersion());
+        out.writeByte(stepExecution.getStatus().ordinal());
+        CompactMessageConverter.writeString(stepExecution.getExitStatus().getExitCode(), out);
+        CompactMessageConverter.writeString(stepExecution.getExitStatus().getExitDescription(), out);
+        out.writeLong(stepExecution.getReadCount());
+        out.writeLong(stepExecution.getWriteCount());
+        out.writeLong(stepExecution.getCommitCount());
+        out.writeLong(stepExecution.getRollbackCount());
+        out.writeLong(stepExecution.getFilterCount());
+        out.writeLong(stepExecution.getReadSkipCount());
+        out.writeLong(stepExecution.getProcessSkipCount());
+        out.writeLong(stepExecution.getWriteSkipCount());
+        CompactMessageConverter.writeDateTime(stepExecution.getCreateTime(), out);
+        CompactMessageConverter.writeDateTime(stepExecution.getStartTime(), out);
+        CompactMessageConverter.writeDateTime(stepExecution.getEndTime(), out);
+        CompactMessageConverter.writeDateTime(stepExecution.getLastUpdated(), out);
+    }
+
+    @Override
+    public StepExecution read(DataInput in) throws IOException {
+        long id = in.readLong();
+        JobExecution jobExecution = new JobExecution(in.readLong());
+        StepExecution stepExecution = new StepExecution(CompactMessageConverter.readString(in), jobExecution, id);
+        stepExecution.setVersion(in.readInt());
+        stepExecution.setStatus(BatchStatus.values()[in.readUnsignedByte()]);
+        stepExecution.setExitStatus(new ExitStatus(CompactMessageConverter.readString(in), CompactMessageConverter.readString(in)));
+        stepExecution.setReadCount(in.readLong());
+        stepExecution.setWriteCount(in.readLong());
+        stepExecution.setCommitCount(in.readLong());
+        stepExecution.setRollbackCount(in.readLong());
+        stepExecution.setFilterCount(in.readLong());
+        stepExecution.setReadSkipCount(in.readLong());
+        stepExecution.setProcessSkipCount(in.readLong());
+        stepExecution.setWriteSkipCount(in.readLong());
+        stepExecution.setCreateTime(CompactMessageConverter.readDateTime(in));
+        stepExecution.setStartTime(CompactMessageConverter.readDateTime(in));
+        stepExecution.setEndTime(CompactMessageConverter.readDateTime(in));
+        stepExecution.setLastUpdated(CompactMessageConverter.readDateTime(in));
+        return stepExecution;
+    }
+}
@@ -0,0 +1,33 @@
+package com.vasquezhouse.batch;
+
+import org.springframework.batch.integration.partition.StepExecutionRequest;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// kept in the package common to the manager and the workers, which exchange partition requests
+public class StepExecutionRequestCodec implements CompactMessageConverter.Codec<StepExecutionRequest> {
+
+    @Override
+    public String type() {
+        return "step-execution-request";
+    }
+
+    @Override
+    public Class<StepExecutionRequest> javaType() {
+        return StepExecutionRequest.class;
+    }
+
+    @Override
+    public void write(StepExecutionRequest request, DataOutput out) throws IOException {
+        CompactMessageConverter.writeString(request.getStepName(), out);
+        out.writeLong(request.getJobExecutionId());
+        out.writeLong(request.getStepExecutionId());
+    }
+
+    @Override
+    public StepExecutionRequest read(DataInput in) throws IOException {
+        return new StepExecutionRequest(CompactMessageConverter.readString(in), in.readLong(), in.readLong());
+    }
+}
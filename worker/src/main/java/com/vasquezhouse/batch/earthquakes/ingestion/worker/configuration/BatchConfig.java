@@ -1,6 +1,5 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.support.DefaultBatchConfiguration;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -11,15 +10,19 @@ import javax.sql.DataSource;
 
 @Configuration
 @EnableBatchProcessing
-@RequiredArgsConstructor
 public class BatchConfig extends DefaultBatchConfiguration {
 
-    @Qualifier("batchDataSource")
     private final DataSource batchDataSource;
-    
-    @Qualifier("analyticsTransactionManager")
+
+    // the job repository lives in the batch database, its transactions must be on the batch pool too
     private final PlatformTransactionManager batchTransactionManager;
 
+    public BatchConfig(@Qualifier("batchDataSource") DataSource batchDataSource,
+                       @Qualifier("batchTransactionManager") PlatformTransactionManager batchTransactionManager) {
+        this.batchDataSource = batchDataSource;
+        this.batchTransactionManager = batchTransactionManager;
+    }
+
     @Override
     protected DataSource getDataSource() {
         return batchDataSource;
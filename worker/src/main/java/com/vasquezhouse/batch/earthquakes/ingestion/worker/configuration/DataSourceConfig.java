@@ -3,6 +3,7 @@ package com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,6 +16,12 @@ import javax.sql.DataSource;
 @Configuration
 public class DataSourceConfig {
 
+    // chunk transaction and job repository on the batch pool; writer and quarantine transactions on the analytics pool
+    private static final int CONNECTIONS_PER_PARTITION = 2;
+
+    @Value("${app.concurrent-partitions:1}")
+    private int concurrentPartitions = 1;
+
     @Bean
     @Primary
     @ConfigurationProperties("spring.datasource.batch")
@@ -31,12 +38,24 @@ public class DataSourceConfig {
     @Bean
     @Primary
     public DataSource batchDataSource() {
-        return new HikariDataSource(batchHikariConfig());
+        return new HikariDataSource(sizeForPartitions(batchHikariConfig()));
     }
 
     @Bean
     public DataSource analyticsDataSource() {
-        return new HikariDataSource(analyticsHikariConfig());
+        return new HikariDataSource(sizeForPartitions(analyticsHikariConfig()));
+    }
+
+    // every concurrent partition must get its connections, otherwise partitions wait on each other for the pool. The
+    // pool sizes are the operator's connection budget, they are checked rather than raised
+    private HikariConfig sizeForPartitions(HikariConfig config) {
+        int required = concurrentPartitions * CONNECTIONS_PER_PARTITION;
+        if (config.getMaximumPoolSize() < required) {
+            throw new IllegalStateException(("Pool [%s] maximum size [%d] is too small for [%d] concurrent partitions, " +
+                "set it to at least [%d] or lower app.concurrent-partitions")
+                .formatted(config.getPoolName(), config.getMaximumPoolSize(), concurrentPartitions, required));
+        }
+        return config;
     }
 
     @Bean(name = "batchTransactionManager")
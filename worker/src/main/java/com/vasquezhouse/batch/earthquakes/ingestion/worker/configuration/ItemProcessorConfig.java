@@ -4,12 +4,15 @@ import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AlertLevel;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
-import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsaStatesMap;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.processor.PlaceResolver;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.processor.UsgsEarthquakeValidator;
 import lombok.SneakyThrows;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.support.CompositeItemProcessor;
 import org.springframework.batch.item.validator.BeanValidatingItemProcessor;
+import org.springframework.batch.item.validator.ValidatingItemProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -19,10 +22,17 @@ import java.util.List;
 @Configuration
 public class ItemProcessorConfig {
 
+    // fast: hand-written validator, bean: Bean Validation annotations on UsgsEarthquake
+    @Value("${app.validation-mode:fast}")
+    private String validationMode;
+
+    @Value("${app.place-cache-size:4096}")
+    private int placeCacheSize = PlaceResolver.DEFAULT_CACHE_SIZE;
+
     @Bean
     public CompositeItemProcessor<UsgsEarthquake, AnalyticsEarthquake> compositeItemProcessor() {
         List<ItemProcessor<?, ?>> delegates = List.of(
-            validatingItemProcessor(),
+            "bean".equals(validationMode) ? beanValidatingItemProcessor() : validatingItemProcessor(),
             transformingItemProcessor()
         );
 
@@ -33,24 +43,40 @@ public class ItemProcessorConfig {
 
     @SneakyThrows
     @Bean
-    public BeanValidatingItemProcessor<UsgsEarthquake> validatingItemProcessor() {
+    public ValidatingItemProcessor<UsgsEarthquake> validatingItemProcessor() {
+        ValidatingItemProcessor<UsgsEarthquake> processor = new ValidatingItemProcessor<>(new UsgsEarthquakeValidator());
+        processor.setFilter(false); // false: throw exceptions for invalid items
+        processor.afterPropertiesSet();
+        return processor;
+    }
+
+    @SneakyThrows
+    @Bean
+    public BeanValidatingItemProcessor<UsgsEarthquake> beanValidatingItemProcessor() {
         BeanValidatingItemProcessor<UsgsEarthquake> processor = new BeanValidatingItemProcessor<>();
         processor.setFilter(false); // false: throw exceptions for invalid items
         processor.afterPropertiesSet();
         return processor;
     }
 
+    @Bean
+    public PlaceResolver placeResolver() {
+        return new PlaceResolver(placeCacheSize);
+    }
+
     @Bean
     public ItemProcessor<UsgsEarthquake, AnalyticsEarthquake> transformingItemProcessor() {
+        PlaceResolver placeResolver = placeResolver();
         return new ItemProcessor<>() {
             @Override
             public AnalyticsEarthquake process(UsgsEarthquake item) {
+                PlaceResolver.Location location = placeResolver.resolve(item.getPlace());
                 return new AnalyticsEarthquake(
                     Instant.ofEpochMilli(item.getTime()),
                     item.getMagnitude(),
                     item.getPlace(),
-                    toUsaState(item.getPlace()),
-                    toCountry(item.getPlace()),
+                    location.state(),
+                    location.country(),
                     item.getTsunami(),
                     item.getSignificance(),
                     mapMagnitudeType(item.getMagType()),
@@ -59,28 +85,12 @@ public class ItemProcessorConfig {
                     item.getCdi(),
                     item.getMmi(),
                     mapAlertLevel(item.getAlertLevel()),
-                    item.getSourceId()
+                    item.getSourceId(),
+                    item.getEventId(),
+                    item.getUpdated() == null ? null : Instant.ofEpochMilli(item.getUpdated())
                 );
             }
 
-            // Place examples
-            // "M 1.4 - 9km NE of Aguanga, CA"
-            // "M 1.1 - 14km NE of East Quincy, California"
-            // "M 3.0 - 105km NNW of San Antonio, Puerto Rico"
-            // "M 4.6 - 213km SE of Hachijo-jima, Japan"
-
-            private static String toUsaState(String place) {
-                String lastPart = place.substring(place.lastIndexOf(",") + 1).trim();
-                return UsaStatesMap.findUsaState(lastPart);
-            }
-
-            private static String toCountry(String place) {
-                String lastPart = place.substring(place.lastIndexOf(",") + 1).trim();
-                return UsaStatesMap.isUsaState(lastPart)
-                    ? "US"
-                    : lastPart;
-            }
-
             private static Integer mapInteger(Double value) {
                 return value == null
                     ? null
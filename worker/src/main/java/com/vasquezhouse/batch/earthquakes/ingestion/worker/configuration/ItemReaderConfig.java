@@ -1,67 +1,139 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration;
 
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.ByteRangeResource;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.CompressedFileResource;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.FileRange;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.MultiFileRangeItemReader;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.PrefetchingItemReader;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.UsgsCsvItemReader;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.UsgsEarthquakeFieldSetMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
-import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Slf4j
 @Configuration
 public class ItemReaderConfig {
 
+    // flat-file: line based reader, nio: byte level tokenizer that only decodes the mapped columns
+    @Value("${app.reader-mode:flat-file}")
+    private String readerMode;
+
+    @Value("${app.invalid-row-mode:fail}")
+    private String invalidRowMode;
+
+    @Value("${app.pipeline.buffer-size:1000}")
+    private int pipelineBufferSize = 1000;
+
+    @Value("${app.pipeline.checkpoint-interval:100}")
+    private int pipelineCheckpointInterval = 100;
+
     @Bean
-    @StepScope // allows late binding of the file parameter
-    public FlatFileItemReader<UsgsEarthquake> itemReader(@Value("#{stepExecutionContext[filename]}") String filename) {
-        log.info(" >>> item reader filename: [{}]", filename);
+    @StepScope // allows late binding of the partition file ranges
+    public MultiFileRangeItemReader<UsgsEarthquake> partitionItemReader(
+        @Value("#{stepExecutionContext}") Map<String, Object> stepExecutionContext
+    ) {
+        return multiFileRangeItemReader(stepExecutionContext);
+    }
+
+    @Bean
+    @StepScope
+    public PrefetchingItemReader<UsgsEarthquake> prefetchingItemReader(
+        @Value("#{stepExecutionContext}") Map<String, Object> stepExecutionContext
+    ) {
+        log.info(" >>> prefetching item reader buffer size: [{}] checkpoint interval: [{}]",
+            pipelineBufferSize, pipelineCheckpointInterval);
+        // not the step scoped partitionItemReader: the delegate is read on the prefetching thread, outside the step scope
+        return new PrefetchingItemReader<>(
+            multiFileRangeItemReader(stepExecutionContext), pipelineBufferSize, pipelineCheckpointInterval);
+    }
+
+    private MultiFileRangeItemReader<UsgsEarthquake> multiFileRangeItemReader(Map<String, Object> stepExecutionContext) {
+        List<FileRange> ranges = FileRange.fromPartition(stepExecutionContext);
+        log.info(" >>> partition item reader mode: [{}] file ranges: [{}]", readerMode, ranges.size());
 
+        // the nio reader needs a seekable file, compressed files are always streamed through the flat-file reader
+        Function<FileRange, ItemStreamReader<UsgsEarthquake>> delegateFactory = range ->
+            "nio".equals(readerMode) && !CompressedFileResource.isCompressed(range.filename())
+                ? nioItemReader(range.filename(), range.startOffset(), range.endOffset())
+                : itemReader(range.filename(), range.startOffset(), range.endOffset());
+
+        MultiFileRangeItemReader<UsgsEarthquake> reader = new MultiFileRangeItemReader<>(ranges, delegateFactory);
+        reader.setName("partitionItemReader");
+        return reader;
+    }
+
+    public FlatFileItemReader<UsgsEarthquake> itemReader(String filename, Long startOffset, Long endOffset) {
+        log.info(" >>> item reader filename: [{}] range: [{}, {})", filename, startOffset, endOffset);
+
+        // USGS header columns, only used to check every line has all the fields
         String[] fieldNames = {
-            "alertLevel",
-            "cdi",
-            "field03",
-            "field04",
-            "field05",
-            "feltRecords",
-            "field07",
-            "field08",
-            "magnitude",
-            "magType",
-            "mmi",
-            "field12",
-            "field13",
-            "place",
-            "field15",
-            "significance",
-            "sourceId",
-            "field18",
-            "time",
-            "field20",
-            "tsunami",
-            "eventType",
-            "field23",
-            "field24",
-            "field25",
-            "field26"
+            "alert", "cdi", "code", "detail", "dmin", "felt", "gap", "ids", "mag", "magType", "mmi", "net", "nst",
+            "place", "rms", "sig", "sources", "status", "time", "title", "tsunami", "type", "types", "tz", "updated",
+            "url"
         };
 
-        BeanWrapperFieldSetMapper<UsgsEarthquake> earthquakeFieldsMapper = new BeanWrapperFieldSetMapper<>() {{
-            setTargetType(UsgsEarthquake.class);
-            setStrict(false); // ignore fields that can't be mapped
-        }};
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+        tokenizer.setNames(fieldNames);
+        DefaultLineMapper<UsgsEarthquake> lineMapper = new DefaultLineMapper<>();
+        lineMapper.setLineTokenizer(tokenizer);
+        lineMapper.setFieldSetMapper(new UsgsEarthquakeFieldSetMapper());
 
         return new FlatFileItemReaderBuilder<UsgsEarthquake>()
             .name("earthquakeItemReader")
-            .resource(new FileSystemResource(filename))
-            .delimited()
-            .names(fieldNames)
-            .fieldSetMapper(earthquakeFieldsMapper)
-            .linesToSkip(1) // skip header
+            .resource(createResource(filename, startOffset, endOffset))
+            .lineMapper((line, lineNumber) -> {
+                UsgsEarthquake earthquake = lineMapper.mapLine(line, lineNumber);
+                // the line is already a string here, keeping it costs nothing
+                earthquake.setLineNumber(lineNumber);
+                earthquake.setRawLine(line);
+                return earthquake;
+            })
+            .linesToSkip(startOffset == null || startOffset == 0 ? 1 : 0) // only the first range has the header
             .strict(true) // fail if file does not exist
             .build();
     }
+
+    public UsgsCsvItemReader nioItemReader(String filename, Long startOffset, Long endOffset) {
+        log.info(" >>> nio item reader filename: [{}] range: [{}, {})", filename, startOffset, endOffset);
+
+        UsgsCsvItemReader reader = new UsgsCsvItemReader(
+            Path.of(filename),
+            UsgsEarthquakeFieldSetMapper.COLUMN_COUNT,
+            UsgsEarthquakeFieldSetMapper.MAPPED_COLUMNS,
+            new UsgsEarthquakeFieldSetMapper()
+        );
+        reader.setName("earthquakeItemReader");
+        reader.setKeepRawLine("quarantine".equals(invalidRowMode));
+        if (startOffset != null && endOffset != null) {
+            reader.setRange(startOffset, endOffset);
+        }
+        return reader;
+    }
+
+    // partitions created before files were split in ranges only carry the filename, so do compressed files: on restart
+    // the reader skips the records it already read, there is no way to seek in a compressed stream
+    private static Resource createResource(String filename, Long startOffset, Long endOffset) {
+        if (CompressedFileResource.isCompressed(filename)) {
+            return new CompressedFileResource(Path.of(filename));
+        }
+        return startOffset == null || endOffset == null
+            ? new FileSystemResource(filename)
+            : new ByteRangeResource(Path.of(filename), startOffset, endOffset);
+    }
 }
@@ -1,47 +1,62 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration;
 
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.EarthquakeSqlParameterSourceProvider;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.PostgresCopyItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.StagingTableItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.UpsertItemWriter;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
-import java.sql.Types;
 
 @Configuration
 public class ItemWriterConfig {
     
+    @Value("${app.upsert.expected-new-rows:1000000}")
+    private long upsertExpectedNewRows = 1_000_000;
+
+    @Value("${app.upsert.false-positive-probability:0.01}")
+    private double upsertFalsePositiveProbability = 0.01;
+
+    // app.writer-mode=jdbc (default): batched insert statements, events already stored at the same time are left
+    // untouched. A revision that moved an event to another time is stored as another row, see the upsert and staging modes
     @Bean
+    @ConditionalOnProperty(name = "app.writer-mode", havingValue = "jdbc", matchIfMissing = true)
     public JdbcBatchItemWriter<AnalyticsEarthquake> itemWriter(@Qualifier("analyticsDataSource") DataSource dataSource) {
         return new JdbcBatchItemWriterBuilder<AnalyticsEarthquake>()
-            .sql("insert into earthquakes (time, magnitude, place, state, country, tsunami, " +
-                "significance, mag_type, event_type, felt_reports, cdi, mmi, alert_level, source_id) " +
-                "values (:time, :magnitude, :place, :state, :country, :tsunami, " +
-                ":significance, :magType, :eventType, :feltReports, :cdi, :mmi, :alertLevel, :sourceId)")
+            .sql(EarthquakeSqlParameterSourceProvider.INSERT_SQL + " on conflict (event_id, time) do nothing")
             .dataSource(dataSource)
-            // bean mapper did not work because of the instant type for time property, using manual mapping as workaround
-            .itemSqlParameterSourceProvider(item -> {
-                MapSqlParameterSource source = new MapSqlParameterSource();
-                source.addValue("time", item.time(), Types.OTHER);
-                source.addValue("magnitude", item.magnitude());
-                source.addValue("place", item.place());
-                source.addValue("state", item.state());
-                source.addValue("country", item.country());
-                source.addValue("tsunami", item.tsunami());
-                source.addValue("significance", item.significance());
-                source.addValue("magType", item.magnitudeType(), Types.VARCHAR);
-                source.addValue("eventType", item.eventType(), Types.VARCHAR);
-                source.addValue("feltReports", item.feltReports());
-                // cdi is a list of comma-separated values we could use a CompositeItemWriter to insert them in a child table
-                source.addValue("cdi", item.cdi());
-                source.addValue("mmi", item.mmi());
-                source.addValue("alertLevel", item.alertLevel(), Types.VARCHAR);
-                source.addValue("sourceId", item.sourceId());
-                return source;
-            })
+            .itemSqlParameterSourceProvider(new EarthquakeSqlParameterSourceProvider())
+            .assertUpdates(false) // skipped duplicates update no rows
             .build();
     }
+
+    // app.writer-mode=copy: streams each chunk using the postgres COPY protocol, much faster for large loads
+    @Bean
+    @ConditionalOnProperty(name = "app.writer-mode", havingValue = "copy")
+    public PostgresCopyItemWriter copyItemWriter(@Qualifier("analyticsDataSource") DataSource dataSource) {
+        return new PostgresCopyItemWriter(dataSource);
+    }
+
+    // app.writer-mode=upsert: re-ingested events replace the stored row when USGS updated them since
+    @Bean
+    @ConditionalOnProperty(name = "app.writer-mode", havingValue = "upsert")
+    public UpsertItemWriter upsertItemWriter(@Qualifier("analyticsDataSource") DataSource dataSource,
+                                             @Qualifier("analyticsTransactionManager") PlatformTransactionManager transactionManager) {
+        return new UpsertItemWriter(dataSource, transactionManager, upsertExpectedNewRows, upsertFalsePositiveProbability);
+    }
+
+    // app.writer-mode=staging: COPY into the unlogged staging table of the job, merged into earthquakes by the manager
+    @Bean
+    @ConditionalOnProperty(name = "app.writer-mode", havingValue = "staging")
+    public StagingTableItemWriter stagingTableItemWriter(@Qualifier("analyticsDataSource") DataSource dataSource) {
+        return new StagingTableItemWriter(dataSource);
+    }
 }
@@ -1,12 +1,17 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration;
 
+import com.vasquezhouse.batch.CompactMessageConverter;
+import com.vasquezhouse.batch.StepExecutionCodec;
+import com.vasquezhouse.batch.StepExecutionRequestCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.integration.amqp.dsl.Amqp;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.dsl.IntegrationFlow;
@@ -14,6 +19,8 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.support.ChannelInterceptor;
 
+import java.util.List;
+
 @Slf4j
 @Configuration
 public class RabbitConfig {
@@ -24,6 +31,19 @@ public class RabbitConfig {
     @Value("${app.worker-replies-queue}")
     private String workerRepliesQueueName;
 
+    // partitions this worker runs at the same time, each one on its own consumer thread
+    @Value("${app.concurrent-partitions:1}")
+    private int concurrentPartitions;
+
+    @Value("${app.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    // used by the rabbit template too
+    @Bean
+    public MessageConverter messageConverter() {
+        return new CompactMessageConverter(List.of(new StepExecutionRequestCodec(), new StepExecutionCodec()));
+    }
+
     @Bean
     public Queue workerRequestsQueue() {
         return new Queue(workerRequestsQueueName, true);
@@ -36,8 +56,21 @@ public class RabbitConfig {
 
     @Bean
     public IntegrationFlow workerRequestsFlow(ConnectionFactory connectionFactory) {
+        log.info(" >>> concurrent partitions: [{}] virtual threads: [{}]", concurrentPartitions, virtualThreads);
+
+        // the step runs on the consumer thread that received the partition request, through the direct channel
+        SimpleAsyncTaskExecutor partitionExecutor = new SimpleAsyncTaskExecutor("partition-");
+        partitionExecutor.setVirtualThreads(virtualThreads);
+        partitionExecutor.setConcurrencyLimit(concurrentPartitions);
+
         return IntegrationFlow
-            .from(Amqp.inboundAdapter(connectionFactory, workerRequestsQueueName))
+            .from(Amqp.inboundAdapter(connectionFactory, workerRequestsQueueName)
+                .messageConverter(messageConverter())
+                .configureContainer(container -> container
+                    .concurrentConsumers(concurrentPartitions)
+                    // a partition runs for minutes, a prefetched request would wait here while other workers are idle
+                    .prefetchCount(1)
+                    .taskExecutor(partitionExecutor)))
             .channel(requestsChannel())
             .get();
     }
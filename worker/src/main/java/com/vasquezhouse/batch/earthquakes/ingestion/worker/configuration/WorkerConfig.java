@@ -2,24 +2,45 @@ package com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration;
 
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.step.AdaptiveChunkCompletionPolicy;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.step.QuarantineSkipListener;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.step.ThrottledCheckpointJobRepository;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.FencedItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.MonthlyPartitionItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.RollupItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.StagingTableItemWriter;
 import lombok.extern.slf4j.Slf4j;
 import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.SkipListener;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.integration.config.annotation.EnableBatchIntegration;
+import org.springframework.batch.integration.partition.RemotePartitioningWorkerStepBuilder;
 import org.springframework.batch.integration.partition.RemotePartitioningWorkerStepBuilderFactory;
-import org.springframework.batch.item.database.JdbcBatchItemWriter;
-import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.item.support.CompositeItemProcessor;
+import org.springframework.batch.item.validator.ValidationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.sql.DataSource;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.Duration;
 
 @Slf4j
 @Configuration
@@ -28,33 +49,136 @@ import java.net.UnknownHostException;
 public class WorkerConfig {
 
     private final PlatformTransactionManager transactionManager;
+    private final JobRepository jobRepository;
     private final RemotePartitioningWorkerStepBuilderFactory workerStepBuilderFactory;
+    private final JobExplorer jobExplorer;
+    private final BeanFactory beanFactory;
 
     @Value("${app.chunk-size}")
     private int chunkSize;
 
+    // fixed: every chunk has app.chunk-size items, adaptive: resized after every commit to meet the target latency
+    @Value("${app.chunk-mode:fixed}")
+    private String chunkMode;
+
+    @Value("${app.chunk.min-size:50}")
+    private int minChunkSize;
+
+    @Value("${app.chunk.max-size:5000}")
+    private int maxChunkSize;
+
+    @Value("${app.chunk.target-commit-latency:500ms}")
+    private Duration targetCommitLatency;
+
+    // fail: an invalid row fails the partition, quarantine: invalid rows are skipped and moved to quarantined_rows
+    @Value("${app.invalid-row-mode:fail}")
+    private String invalidRowMode;
+
+    @Value("${app.skip-limit:100}")
+    private int skipLimit;
+
+    // sequential: items are read when the chunk needs them, pipelined: read ahead on another thread during writes
+    @Value("${app.pipeline-mode:sequential}")
+    private String pipelineMode;
+
+    // writes of a partition attempt are rejected once the manager re-published the partition to another worker
+    @Value("${app.partition-fencing:false}")
+    private boolean partitionFencing;
+
+    // every-chunk: the step execution is saved with every chunk, throttled: only every few chunks or seconds
+    @Value("${app.checkpoint-mode:every-chunk}")
+    private String checkpointMode;
+
+    @Value("${app.checkpoint.interval-chunks:10}")
+    private int checkpointIntervalChunks;
+
+    @Value("${app.checkpoint.interval:5s}")
+    private Duration checkpointInterval;
+
+    @Bean
+    @StepScope // keeps the chunk size of each step execution apart
+    public AdaptiveChunkCompletionPolicy chunkCompletionPolicy() {
+        return new AdaptiveChunkCompletionPolicy(chunkSize, minChunkSize, maxChunkSize, targetCommitLatency);
+    }
+
+    @Bean
+    @StepScope
+    public QuarantineSkipListener quarantineSkipListener(
+        @Qualifier("analyticsDataSource") DataSource dataSource,
+        @Qualifier("analyticsTransactionManager") PlatformTransactionManager analyticsTransactionManager
+    ) {
+        return new QuarantineSkipListener(dataSource, analyticsTransactionManager);
+    }
+
     @Bean
     public Step workerStep(DirectChannel requestsChannel,
                            DirectChannel repliesChannel,
-                           FlatFileItemReader<UsgsEarthquake> itemReader,
+                           @Qualifier("partitionItemReader") ItemStreamReader<UsgsEarthquake> partitionItemReader,
+                           @Qualifier("prefetchingItemReader") ItemStreamReader<UsgsEarthquake> prefetchingItemReader,
                            CompositeItemProcessor<UsgsEarthquake, AnalyticsEarthquake> itemProcessor,
-                           JdbcBatchItemWriter<AnalyticsEarthquake> itemWriter
+                           ItemWriter<AnalyticsEarthquake> itemWriter,
+                           AdaptiveChunkCompletionPolicy chunkCompletionPolicy,
+                           QuarantineSkipListener quarantineSkipListener,
+                           @Qualifier("analyticsDataSource") DataSource analyticsDataSource,
+                           @Qualifier("analyticsTransactionManager") PlatformTransactionManager analyticsTransactionManager
     ) {
-        return workerStepBuilderFactory.get("workerStep")
+        log.info(" >>> worker step chunk mode: [{}] invalid row mode: [{}] pipeline mode: [{}] partition fencing: [{}] checkpoint mode: [{}]",
+            chunkMode, invalidRowMode, pipelineMode, partitionFencing, checkpointMode);
+        RemotePartitioningWorkerStepBuilderFactory stepBuilderFactory = workerStepBuilderFactory;
+        if ("throttled".equals(checkpointMode)) {
+            // a restart replays the chunks committed since the last checkpoint, every writer mode skips or merges them
+            // only the worker step saves through the throttled repository, the shared one is left as is
+            stepBuilderFactory = new RemotePartitioningWorkerStepBuilderFactory(
+                new ThrottledCheckpointJobRepository(jobRepository, checkpointIntervalChunks, checkpointInterval),
+                jobExplorer);
+            stepBuilderFactory.setBeanFactory(beanFactory);
+        }
+        RemotePartitioningWorkerStepBuilder stepBuilder = stepBuilderFactory.get("workerStep")
             .inputChannel(requestsChannel)
-            .outputChannel(repliesChannel)
-            .<UsgsEarthquake, AnalyticsEarthquake>chunk(chunkSize, transactionManager)
-            .reader(itemReader)
+            .outputChannel(repliesChannel);
+
+        ItemWriter<AnalyticsEarthquake> writer = partitionFencing
+            ? new FencedItemWriter<>(itemWriter, analyticsDataSource, analyticsTransactionManager)
+            : itemWriter;
+        if (!(itemWriter instanceof StagingTableItemWriter)) {
+            // the staging table isn't partitioned nor rolled up, the manager does both when merging it
+            writer = new RollupItemWriter<>(writer, analyticsDataSource, analyticsTransactionManager);
+            writer = new MonthlyPartitionItemWriter(writer, analyticsDataSource, analyticsTransactionManager);
+        }
+
+        SimpleStepBuilder<UsgsEarthquake, AnalyticsEarthquake> chunkStepBuilder = "adaptive".equals(chunkMode)
+            ? stepBuilder.<UsgsEarthquake, AnalyticsEarthquake>chunk(chunkCompletionPolicy, transactionManager)
+                .listener((StepExecutionListener) chunkCompletionPolicy)
+                .listener((ChunkListener) chunkCompletionPolicy)
+                .listener((ItemWriteListener<Object>) chunkCompletionPolicy)
+            : stepBuilder.chunk(chunkSize, transactionManager);
+
+        chunkStepBuilder = chunkStepBuilder
+            .reader("pipelined".equals(pipelineMode) ? prefetchingItemReader : partitionItemReader)
             .processor(itemProcessor)
-            .writer(itemWriter)
+            .writer(writer)
             .listener(new StepExecutionListener() {
                 @Override
                 public void beforeStep(StepExecution stepExecution) {
                     StepExecutionListener.super.beforeStep(stepExecution);
                     stepExecution.getExecutionContext().putString("worker-id", getWorkerId());
                 }
-            })
-            .build();
+            });
+
+        if ("quarantine".equals(invalidRowMode)) {
+            chunkStepBuilder = chunkStepBuilder.faultTolerant()
+                .skipLimit(skipLimit)
+                .skip(FlatFileParseException.class) // malformed lines, while reading
+                .skip(ValidationException.class) // constraint violations, while processing
+                .skip(IllegalArgumentException.class) // unknown enum values, while processing
+                // a validation failure only drops its item, the rest of the chunk is written without a rollback
+                .noRollback(ValidationException.class)
+                .listener((SkipListener<UsgsEarthquake, AnalyticsEarthquake>) quarantineSkipListener)
+                .listener((ChunkListener) quarantineSkipListener)
+                .listener((StepExecutionListener) quarantineSkipListener);
+        }
+
+        return chunkStepBuilder.build();
     }
 
     private static String getWorkerId() {
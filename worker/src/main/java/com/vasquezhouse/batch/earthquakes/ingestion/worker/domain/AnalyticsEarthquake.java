@@ -17,6 +17,8 @@ public record AnalyticsEarthquake(
     BigDecimal cdi,
     BigDecimal mmi,
     AlertLevel alertLevel,
-    String sourceId
+    String sourceId,
+    String eventId,
+    Instant sourceUpdatedAt
 ) {
 }
@@ -1,19 +1,21 @@
 package com.vasquezhouse.batch.earthquakes.ingestion.worker.domain;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class UsaStatesMap {
 
     public static String findUsaState(String value) {
-        return STATES.getOrDefault(value.toUpperCase(), null);
+        return STATES.get(value);
     }
 
     public static boolean isUsaState(String value) {
-        return STATES.containsKey(value.toUpperCase());
+        return STATES.containsKey(value);
     }
 
-    private static final Map<String, String> STATES = new HashMap<>() {{
+    // case-insensitive keys, so lookups don't need an upper-cased copy of the value
+    private static final Map<String, String> STATES = Collections.unmodifiableMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER) {{
         put("AL", "AL"); put("ALA", "AL"); put("ALABAMA", "AL");
         put("AK", "AK"); put("ALK", "AK"); put("ALASKA", "AK");
         put("AZ", "AZ"); put("ARIZ", "AZ"); put("ARIZONA", "AZ");
@@ -64,5 +66,5 @@ public class UsaStatesMap {
         put("WV", "WV"); put("WESTVIRGINIA", "WV"); put("WEST VIRGINIA", "WV");
         put("WI", "WI"); put("WIS", "WI"); put("WISC", "WI"); put("WISCONSIN", "WI");
         put("WY", "WY"); put("WYO", "WY"); put("WYOMING", "WY");
-    }};
+    }});
 }
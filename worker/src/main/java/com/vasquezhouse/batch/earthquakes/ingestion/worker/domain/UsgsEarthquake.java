@@ -8,6 +8,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.hibernate.validator.constraints.Range;
 
 import java.math.BigDecimal;
@@ -54,4 +56,19 @@ public class UsgsEarthquake {
 
     @NotBlank(message = "Source ID is required")
     private String sourceId;
+
+    // USGS event id (network + code), optional: rows without it are inserted but can't be upserted
+    private String eventId;
+
+    // epoch millis of the last USGS revision of the event
+    private Long updated;
+
+    // where the row came from, only used to quarantine invalid rows
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Integer lineNumber;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String rawLine;
 }
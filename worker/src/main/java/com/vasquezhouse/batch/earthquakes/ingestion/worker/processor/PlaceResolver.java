@@ -0,0 +1,97 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.processor;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsaStatesMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the USA state and the country of an earthquake from the last comma separated part of its place.
+ * <p>
+ * Place examples:
+ * <ul>
+ *     <li>"M 1.4 - 9km NE of Aguanga, CA"</li>
+ *     <li>"M 1.1 - 14km NE of East Quincy, California"</li>
+ *     <li>"M 3.0 - 105km NNW of San Antonio, Puerto Rico"</li>
+ *     <li>"M 4.6 - 213km SE of Hachijo-jima, Japan"</li>
+ * </ul>
+ * The suffix is parsed once per row and looked up in a bounded cache, since the set of distinct suffixes is small
+ * compared to the number of rows. Once the cache is full new suffixes are still resolved, just not cached.
+ * Resolved strings are interned so rows sharing a suffix share the same instances.
+ */
+public class PlaceResolver implements MeterBinder {
+
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final Location EMPTY = new Location(null, null);
+
+    private final int maxCacheSize;
+    private final Map<String, Location> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PlaceResolver() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public PlaceResolver(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    public Location resolve(String place) {
+        if (place == null) return EMPTY;
+
+        int start = place.lastIndexOf(',') + 1;
+        int end = place.length();
+        while (start < end && Character.isWhitespace(place.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(place.charAt(end - 1))) end--;
+        String suffix = place.substring(start, end);
+
+        Location location = cache.get(suffix);
+        if (location != null) {
+            hits.increment();
+            return location;
+        }
+
+        misses.increment();
+        location = toLocation(suffix);
+        if (cache.size() < maxCacheSize) {
+            cache.putIfAbsent(suffix, location);
+        }
+        return location;
+    }
+
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("place.resolver.cache.hits", hits, LongAdder::sum)
+            .description("Places resolved from the suffix cache")
+            .register(registry);
+        FunctionCounter.builder("place.resolver.cache.misses", misses, LongAdder::sum)
+            .description("Places resolved by parsing the suffix")
+            .register(registry);
+        Gauge.builder("place.resolver.cache.size", cache, Map::size)
+            .description("Distinct place suffixes cached")
+            .register(registry);
+    }
+
+    private static Location toLocation(String suffix) {
+        String state = UsaStatesMap.findUsaState(suffix);
+        return state != null
+            ? new Location(state, "US")
+            : new Location(null, suffix.intern());
+    }
+
+    public record Location(String state, String country) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.processor;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import org.springframework.batch.item.validator.ValidationException;
+import org.springframework.batch.item.validator.Validator;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.FieldError;
+
+import java.math.BigDecimal;
+
+/**
+ * Hand-written equivalent of the Bean Validation constraints declared on {@link UsgsEarthquake}.
+ * <p>
+ * Checks run as plain comparisons and switches instead of constraint metadata lookups and regular expressions. Valid
+ * items don't allocate; for invalid ones the errors and the exception are built the same way Spring Batch does for
+ * Bean Validation, so messages are unchanged. Keep the rules in sync with the annotations on {@link UsgsEarthquake}.
+ */
+public class UsgsEarthquakeValidator implements Validator<UsgsEarthquake> {
+
+    private static final long MIN_TIME = 0L;
+    private static final long MAX_TIME = 253402300799999L;
+    private static final BigDecimal MIN_MAGNITUDE = new BigDecimal("-2.0");
+    private static final BigDecimal MAX_MAGNITUDE = new BigDecimal("10.0");
+    private static final BigDecimal MIN_INTENSITY = new BigDecimal("0.0");
+    private static final BigDecimal MAX_INTENSITY = new BigDecimal("12.0");
+    private static final int MIN_SIGNIFICANCE = 0;
+    private static final int MAX_SIGNIFICANCE = 3000;
+
+    @Override
+    public void validate(UsgsEarthquake item) throws ValidationException {
+        BeanPropertyBindingResult errors = null;
+
+        Long time = item.getTime();
+        if (time == null) {
+            errors = reject(errors, item, "time", "NotNull", "Time is required");
+        } else {
+            if (time < MIN_TIME) errors = reject(errors, item, "time", "Min", "Time must be after 1970");
+            if (time > MAX_TIME) errors = reject(errors, item, "time", "Max", "Time must be before year 9999");
+        }
+
+        BigDecimal magnitude = item.getMagnitude();
+        if (magnitude != null) {
+            if (magnitude.compareTo(MIN_MAGNITUDE) < 0) errors = reject(errors, item, "magnitude", "DecimalMin", "Magnitude must be >= -2.0");
+            if (magnitude.compareTo(MAX_MAGNITUDE) > 0) errors = reject(errors, item, "magnitude", "DecimalMax", "Magnitude must be <= 10.0");
+        }
+
+        if (isBlank(item.getPlace())) {
+            errors = reject(errors, item, "place", "NotBlank", "Place is required");
+        }
+
+        if (item.getTsunami() == null) {
+            errors = reject(errors, item, "tsunami", "NotNull", "Tsunami indicator is required");
+        }
+
+        Integer significance = item.getSignificance();
+        if (significance != null && (significance < MIN_SIGNIFICANCE || significance > MAX_SIGNIFICANCE)) {
+            errors = reject(errors, item, "significance", "Range", "Significance must be between 0 and 3000");
+        }
+
+        if (!isValidMagType(item.getMagType())) {
+            errors = reject(errors, item, "magType", "Pattern", "Invalid magnitude type");
+        }
+
+        if (!isValidEventType(item.getEventType())) {
+            errors = reject(errors, item, "eventType", "Pattern", "Invalid event type");
+        }
+
+        Double feltReports = item.getFeltReports();
+        if (feltReports != null && feltReports < 0.0) {
+            errors = reject(errors, item, "feltReports", "DecimalMin", "Felt reports must be >= 0");
+        }
+
+        BigDecimal cdi = item.getCdi();
+        if (cdi != null) {
+            if (cdi.compareTo(MIN_INTENSITY) < 0) errors = reject(errors, item, "cdi", "DecimalMin", "CDI must be >= 0");
+            if (cdi.compareTo(MAX_INTENSITY) > 0) errors = reject(errors, item, "cdi", "DecimalMax", "CDI must be <= 12.0");
+        }
+
+        BigDecimal mmi = item.getMmi();
+        if (mmi != null) {
+            if (mmi.compareTo(MIN_INTENSITY) < 0) errors = reject(errors, item, "mmi", "DecimalMin", "MMI must be >= 0");
+            if (mmi.compareTo(MAX_INTENSITY) > 0) errors = reject(errors, item, "mmi", "DecimalMax", "MMI must be <= 12.0");
+        }
+
+        if (!isValidAlertLevel(item.getAlertLevel())) {
+            errors = reject(errors, item, "alertLevel", "Pattern", "Invalid alert level");
+        }
+
+        if (isBlank(item.getSourceId())) {
+            errors = reject(errors, item, "sourceId", "NotBlank", "Source ID is required");
+        }
+
+        if (errors != null) {
+            throw new ValidationException("Validation failed for " + item + ": " + errorsToString(errors), new BindException(errors));
+        }
+    }
+
+    // ^(mb|md|mh|ml|mb_lg|ms|ms_20|mw|mwb|mwr|mww)?$, null is valid
+    static boolean isValidMagType(String value) {
+        if (value == null) return true;
+        return switch (value) {
+            case "", "mb", "md", "mh", "ml", "mb_lg", "ms", "ms_20", "mw", "mwb", "mwr", "mww" -> true;
+            default -> false;
+        };
+    }
+
+    // ^(earthquake|quarry blast|ice quake|explosion|other event)$, null is valid
+    static boolean isValidEventType(String value) {
+        if (value == null) return true;
+        return switch (value) {
+            case "earthquake", "quarry blast", "ice quake", "explosion", "other event" -> true;
+            default -> false;
+        };
+    }
+
+    // ^(green|yellow|orange|red)?$, null is valid
+    static boolean isValidAlertLevel(String value) {
+        if (value == null) return true;
+        return switch (value) {
+            case "", "green", "yellow", "orange", "red" -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty(); // trim() as Hibernate Validator does
+    }
+
+    private static BeanPropertyBindingResult reject(BeanPropertyBindingResult errors,
+                                                    UsgsEarthquake item,
+                                                    String field,
+                                                    String code,
+                                                    String message) {
+        BeanPropertyBindingResult result = errors != null ? errors : new BeanPropertyBindingResult(item, "item");
+        result.rejectValue(field, code, message);
+        return result;
+    }
+
+    // same format as org.springframework.batch.item.validator.SpringValidator
+    private static String errorsToString(BeanPropertyBindingResult errors) {
+        StringBuilder builder = new StringBuilder();
+        for (FieldError error : errors.getFieldErrors()) {
+            builder.append("\n").append(error);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * File resource exposing only the bytes in [startOffset, endOffset), so line based readers can process one range of a
+ * file split by the manager.
+ */
+public class ByteRangeResource extends FileSystemResource {
+
+    private final long startOffset;
+    private final long endOffset;
+
+    public ByteRangeResource(Path path, long startOffset, long endOffset) {
+        super(path);
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream in = Files.newInputStream(getFile().toPath());
+        try {
+            in.skipNBytes(startOffset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new RangeInputStream(in, endOffset - startOffset);
+    }
+
+    @Override
+    public String getDescription() {
+        return "byte range [" + startOffset + ", " + endOffset + ") of " + super.getDescription();
+    }
+
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * File resource decompressing a {@code .gz} or {@code .zst} file while it is read, so compressed inputs never have to
+ * be expanded on disk.
+ * <p>
+ * Compressed files can't be split in byte ranges, they are always read from the start. The compressed bytes are read
+ * in large blocks: the input is usually on network storage, where every small read is a round trip.
+ */
+public class CompressedFileResource extends FileSystemResource {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    // size of the inflater input buffer of gzip streams
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private final int bufferSize;
+
+    public CompressedFileResource(Path path) {
+        this(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CompressedFileResource(Path path, int bufferSize) {
+        super(path);
+        if (!isCompressed(path.toString())) {
+            throw new IllegalArgumentException("Unsupported compression: " + path);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public static boolean isCompressed(String filename) {
+        return filename.endsWith(".gz") || filename.endsWith(".zst");
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(getFile().toPath()), bufferSize);
+        try {
+            return getFilename().endsWith(".gz")
+                ? new GZIPInputStream(in, GZIP_BUFFER_SIZE)
+                : new ZstdInputStream(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "compressed " + super.getDescription();
+    }
+}
@@ -0,0 +1,38 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte range [startOffset, endOffset) of a file assigned to a partition, startOffset is always a record boundary.
+ */
+public record FileRange(String filename, Long startOffset, Long endOffset) {
+
+    /**
+     * Reads the file ranges the manager put in the partition execution context: {@code fileCount} entries of
+     * {@code filename.<i>}, {@code startOffset.<i>} and {@code endOffset.<i>}. A context with a single
+     * {@code filename} (one whole file per partition) is still accepted.
+     */
+    public static List<FileRange> fromPartition(Map<String, Object> context) {
+        Object fileCount = context.get("fileCount");
+        if (fileCount == null) {
+            return List.of(new FileRange(
+                (String) context.get("filename"),
+                (Long) context.get("startOffset"),
+                (Long) context.get("endOffset")
+            ));
+        }
+
+        int count = ((Number) fileCount).intValue();
+        List<FileRange> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranges.add(new FileRange(
+                (String) context.get("filename." + i),
+                (Long) context.get("startOffset." + i),
+                (Long) context.get("endOffset." + i)
+            ));
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,83 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads the file ranges of a partition one after the other, in the spirit of {@code MultiResourceItemReader}.
+ * <p>
+ * A delegate reader is created per range. The index of the current range is saved along with the delegate state so a
+ * restarted step resumes in the same range at the same position.
+ */
+@Slf4j
+public class MultiFileRangeItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+
+    private static final String INDEX_KEY = "range.index";
+
+    private final List<FileRange> ranges;
+    private final Function<FileRange, ItemStreamReader<T>> delegateFactory;
+
+    private int currentIndex;
+    private ItemStreamReader<T> delegate;
+
+    public MultiFileRangeItemReader(List<FileRange> ranges, Function<FileRange, ItemStreamReader<T>> delegateFactory) {
+        this.ranges = ranges;
+        this.delegateFactory = delegateFactory;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        currentIndex = executionContext.getInt(getExecutionContextKey(INDEX_KEY), 0);
+        if (currentIndex < ranges.size()) {
+            // on restart the context holds the state of the delegate that was reading
+            openDelegate(executionContext);
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (delegate != null) {
+            T item = delegate.read();
+            if (item != null) {
+                return item;
+            }
+
+            delegate.close();
+            delegate = null;
+            currentIndex++;
+            if (currentIndex < ranges.size()) {
+                openDelegate(new ExecutionContext());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putInt(getExecutionContextKey(INDEX_KEY), currentIndex);
+        if (delegate != null) {
+            delegate.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (delegate != null) {
+            delegate.close();
+            delegate = null;
+        }
+    }
+
+    private void openDelegate(ExecutionContext executionContext) {
+        FileRange range = ranges.get(currentIndex);
+        log.debug(" >>> reading range {} of {}: {}", currentIndex + 1, ranges.size(), range);
+        delegate = delegateFactory.apply(range);
+        delegate.open(executionContext);
+    }
+}
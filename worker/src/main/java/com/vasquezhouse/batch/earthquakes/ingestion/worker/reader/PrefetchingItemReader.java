@@ -0,0 +1,185 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads ahead of the step on its own thread, so the next items are read and parsed while the current chunk is
+ * processed and written.
+ * <p>
+ * Read items wait in a bounded buffer, the reading thread blocks when the step falls behind. The step may only commit
+ * the position of the items it took from the buffer, never of the items read ahead: every {@code checkpointInterval}
+ * items the reading thread saves the state of the delegate, and {@link #update} stores the last checkpoint before the
+ * position of the step, plus the number of items read since then under {@code <name>.skip}. A restarted reader opens
+ * the delegate at that checkpoint and skips those items again. Read failures take a place in the buffer like items, so
+ * the step gets them in order and a fault tolerant step can skip them.
+ * <p>
+ * The delegate is only used by the reading thread between {@link #open} and {@link #close}; it must not depend on the
+ * step scope of the calling thread.
+ */
+@Slf4j
+public class PrefetchingItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+
+    private static final String SKIP_KEY = "skip";
+
+    private static final Object END = new Object();
+
+    private final ItemStreamReader<T> delegate;
+    private final int bufferSize;
+    private final int checkpointInterval;
+
+    private BlockingQueue<Object> buffer;
+    // checkpoints of the delegate, oldest first, shared with the reading thread
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private Thread readingThread;
+    private long consumed;
+    private boolean exhausted;
+
+    public PrefetchingItemReader(ItemStreamReader<T> delegate, int bufferSize, int checkpointInterval) {
+        if (bufferSize < 1 || checkpointInterval < 1) {
+            throw new IllegalArgumentException("Buffer size and checkpoint interval must be positive");
+        }
+        this.delegate = delegate;
+        this.bufferSize = bufferSize;
+        this.checkpointInterval = checkpointInterval;
+        setName("prefetchingItemReader");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.open(executionContext);
+        int skip = executionContext.getInt(getExecutionContextKey(SKIP_KEY), 0);
+
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        // positions count from the state the delegate was opened with, the skipped items were taken before the restart
+        consumed = skip;
+        exhausted = false;
+        synchronized (checkpoints) {
+            checkpoints.clear();
+            checkpoints.add(checkpoint(0));
+        }
+
+        readingThread = Thread.ofPlatform()
+            .name("prefetch-" + Thread.currentThread().getName())
+            .daemon()
+            .start(() -> readAhead(skip));
+    }
+
+    @Override
+    public T read() throws Exception {
+        if (exhausted) {
+            return null;
+        }
+
+        Object next = buffer.take();
+        if (next == END) {
+            exhausted = true;
+            return null;
+        }
+        consumed++;
+        if (next instanceof Failure failure) {
+            throw failure.exception();
+        }
+        @SuppressWarnings("unchecked")
+        T item = (T) next;
+        return item;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        Checkpoint latest;
+        synchronized (checkpoints) {
+            // older checkpoints are never needed again, the step doesn't go back
+            while (checkpoints.size() > 1 && checkpoints.get(1).position() <= consumed) {
+                checkpoints.remove(0);
+            }
+            latest = checkpoints.getFirst();
+        }
+        for (Map.Entry<String, Object> entry : latest.state().entrySet()) {
+            executionContext.put(entry.getKey(), entry.getValue());
+        }
+        executionContext.putInt(getExecutionContextKey(SKIP_KEY), (int) (consumed - latest.position()));
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (readingThread != null) {
+            readingThread.interrupt();
+            try {
+                readingThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            readingThread = null;
+        }
+        delegate.close();
+    }
+
+    private void readAhead(int skip) {
+        try {
+            if (skip > 0) {
+                log.debug(" >>> skipping [{}] items read before the restart", skip);
+            }
+
+            long position = 0;
+            while (true) {
+                Object next = read(delegate);
+                if (next == null) {
+                    buffer.put(END);
+                    return;
+                }
+                if (position >= skip) {
+                    buffer.put(next);
+                }
+                position++;
+
+                if (position % checkpointInterval == 0) {
+                    Checkpoint checkpoint = checkpoint(position);
+                    synchronized (checkpoints) {
+                        checkpoints.add(checkpoint);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed by the step
+        } catch (RuntimeException e) {
+            // the delegate failed to save its state, the step gets the failure and no more items
+            try {
+                buffer.put(new Failure(e));
+                buffer.put(END);
+            } catch (InterruptedException interrupted) {
+                // closed by the step
+            }
+        }
+    }
+
+    private static Object read(ItemStreamReader<?> reader) {
+        try {
+            return reader.read();
+        } catch (Exception e) {
+            return new Failure(e);
+        }
+    }
+
+    // state of the delegate after reading position items
+    private Checkpoint checkpoint(long position) {
+        ExecutionContext state = new ExecutionContext();
+        delegate.update(state);
+        return new Checkpoint(position, state);
+    }
+
+    private record Checkpoint(long position, ExecutionContext state) {
+    }
+
+    private record Failure(Exception exception) {
+    }
+}
@@ -0,0 +1,315 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads USGS CSV files tokenizing RFC-4180 records at byte level straight from a {@link FileChannel}.
+ * <p>
+ * Only the projected columns are decoded into strings, every other column is skipped over without allocating. The
+ * byte offset of the next record is saved in the {@link ExecutionContext} so a restarted step seeks straight to where
+ * the last committed chunk ended instead of re-reading the file.
+ * <p>
+ * When the manager splits a file, the reader is given a byte range. Ranges start at record boundaries, the reader
+ * consumes records starting before the end of its range and skips the header only in the range starting at 0.
+ */
+@Slf4j
+public class UsgsCsvItemReader extends ItemStreamSupport implements ItemStreamReader<UsgsEarthquake> {
+
+    private static final String OFFSET_KEY = "offset";
+    private static final String LINE_KEY = "line";
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final Path path;
+    private final int columnCount;
+    private final boolean[] projected;
+    private final FieldSetMapper<UsgsEarthquake> fieldSetMapper;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private long startOffset = 0;
+    private long endOffset = Long.MAX_VALUE;
+    private boolean keepRawLine = false;
+
+    private FileChannel channel;
+    private byte[] buffer;
+    private int position; // start of the next record in the buffer
+    private int limit; // end of valid data in the buffer
+    private long bufferOffset; // file offset of buffer[0]
+    private boolean endOfInput;
+    private long lineNumber; // physical lines consumed so far, quoted line breaks included
+
+    // positions of the current record fields, filled by tokenize()
+    private final int[] fieldStart;
+    private final int[] fieldEnd;
+    private final boolean[] fieldEscaped;
+    private int recordStart;
+    private int recordEnd;
+    private int recordLineNumber;
+    private int fieldCount;
+
+    public UsgsCsvItemReader(Path path, int columnCount, int[] projectedColumns, FieldSetMapper<UsgsEarthquake> fieldSetMapper) {
+        this.path = path;
+        this.columnCount = columnCount;
+        this.projected = new boolean[columnCount];
+        for (int column : projectedColumns) {
+            this.projected[column] = true;
+        }
+        this.fieldSetMapper = fieldSetMapper;
+        this.fieldStart = new int[columnCount];
+        this.fieldEnd = new int[columnCount];
+        this.fieldEscaped = new boolean[columnCount];
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    // decodes the whole record into the item, off by default since it's what the projection avoids
+    public void setKeepRawLine(boolean keepRawLine) {
+        this.keepRawLine = keepRawLine;
+    }
+
+    public void setRange(long startOffset, long endOffset) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        long offset = executionContext.getLong(getExecutionContextKey(OFFSET_KEY), startOffset);
+        lineNumber = executionContext.getLong(getExecutionContextKey(LINE_KEY), 0L);
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            channel.position(offset);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open file: " + path, e);
+        }
+
+        buffer = new byte[bufferSize];
+        position = 0;
+        limit = 0;
+        bufferOffset = offset;
+        endOfInput = false;
+
+        if (offset == 0) {
+            skipHeader();
+        } else if (offset != startOffset) {
+            log.info(" >>> restarting {} at offset {}, line {}", path, offset, lineNumber);
+        }
+    }
+
+    @Override
+    public UsgsEarthquake read() throws Exception {
+        do {
+            if (!nextRecord()) {
+                return null;
+            }
+        } while (recordEnd == recordStart); // blank line
+
+        if (fieldCount != columnCount) {
+            String input = recordText();
+            throw new FlatFileParseException(
+                "Incorrect number of fields at line: " + recordLineNumber + ", expected " + columnCount + " actual " + fieldCount,
+                input, recordLineNumber);
+        }
+
+        String[] tokens = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            if (projected[i]) {
+                tokens[i] = fieldText(i);
+            }
+        }
+
+        try {
+            UsgsEarthquake earthquake = fieldSetMapper.mapFieldSet(new DefaultFieldSet(tokens));
+            earthquake.setLineNumber(recordLineNumber);
+            if (keepRawLine) {
+                earthquake.setRawLine(recordText());
+            }
+            return earthquake;
+        } catch (Exception e) {
+            String input = recordText();
+            throw new FlatFileParseException("Parsing error at line: " + recordLineNumber + ", input=[" + input + "]", e, input, recordLineNumber);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(getExecutionContextKey(OFFSET_KEY), bufferOffset + position);
+        executionContext.putLong(getExecutionContextKey(LINE_KEY), lineNumber);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to close file: " + path, e);
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void skipHeader() {
+        try {
+            nextRecord();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to read header of file: " + path, e);
+        }
+    }
+
+    // tokenizes the next record, refilling the buffer as needed; false when there are no records left
+    private boolean nextRecord() throws IOException {
+        while (true) {
+            if ((position == limit && endOfInput) || bufferOffset + position >= endOffset) {
+                return false;
+            }
+
+            int next = tokenize();
+            if (next >= 0) {
+                position = next;
+                return true;
+            }
+
+            fill();
+        }
+    }
+
+    /**
+     * Finds the fields of the record starting at {@link #position}.
+     *
+     * @return the buffer position after the record, or -1 when the buffer ends before the record does
+     */
+    private int tokenize() {
+        int field = 0;
+        int start = position;
+        int end = -1; // end of a quoted field value, at the closing quote
+        boolean quoted = false;
+        boolean inQuotes = false;
+        boolean escaped = false;
+        int newLines = 0;
+
+        int i = position;
+        while (true) {
+            if (i >= limit) {
+                if (!endOfInput) return -1;
+                // last record of a file without a trailing line break
+                endField(field++, start, inQuotes ? i : quoted ? end : i, quoted, escaped);
+                endRecord(i, field, newLines);
+                return i;
+            }
+
+            byte b = buffer[i];
+
+            if (inQuotes) {
+                if (b == QUOTE) {
+                    if (i + 1 >= limit && !endOfInput) return -1;
+                    if (i + 1 < limit && buffer[i + 1] == QUOTE) {
+                        escaped = true;
+                        i += 2;
+                        continue;
+                    }
+                    inQuotes = false;
+                    end = i;
+                } else if (b == LF) {
+                    newLines++;
+                }
+                i++;
+                continue;
+            }
+
+            if (b == DELIMITER) {
+                endField(field++, start, quoted ? end : i, quoted, escaped);
+                start = i + 1;
+                quoted = false;
+                escaped = false;
+            } else if (b == LF) {
+                int valueEnd = !quoted && i > start && buffer[i - 1] == CR ? i - 1 : i;
+                // a line with nothing but a line break is a blank line, not a record with one empty field
+                boolean blank = field == 0 && valueEnd == position;
+                if (!blank) {
+                    endField(field++, start, quoted ? end : valueEnd, quoted, escaped);
+                }
+                endRecord(blank ? position : valueEnd, field, newLines);
+                return i + 1;
+            } else if (b == QUOTE && i == start) {
+                quoted = true;
+                inQuotes = true;
+            }
+            i++;
+        }
+    }
+
+    private void endRecord(int end, int fields, int newLines) {
+        recordStart = position;
+        recordEnd = end;
+        recordLineNumber = (int) lineNumber + 1;
+        fieldCount = fields;
+        lineNumber += newLines + 1;
+    }
+
+    private void endField(int field, int start, int end, boolean quoted, boolean escaped) {
+        if (field >= columnCount) {
+            return;
+        }
+        fieldStart[field] = quoted ? start + 1 : start;
+        fieldEnd[field] = end;
+        fieldEscaped[field] = escaped;
+    }
+
+    private String fieldText(int field) {
+        String value = new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+        return fieldEscaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    private String recordText() {
+        return new String(buffer, recordStart, recordEnd - recordStart, StandardCharsets.UTF_8);
+    }
+
+    // moves the unread bytes to the start of the buffer and reads more from the file, growing the buffer if a single
+    // record does not fit
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        }
+
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.reader;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps a tokenized USGS CSV line to {@link UsgsEarthquake} reading only the columns we use, by position.
+ * <p>
+ * Replaces {@code BeanWrapperFieldSetMapper}, which resolved every property through reflection and the conversion
+ * service on every row. Values are parsed directly; blank numbers and booleans become {@code null}, text columns are
+ * kept as-is, matching what the bean wrapper produced.
+ */
+public class UsgsEarthquakeFieldSetMapper implements FieldSetMapper<UsgsEarthquake> {
+
+    // column positions in the USGS CSV export, see README for the full list of fields
+    public static final int ALERT = 0;
+    public static final int CDI = 1;
+    public static final int CODE = 2;
+    public static final int FELT = 5;
+    public static final int MAG = 8;
+    public static final int MAG_TYPE = 9;
+    public static final int MMI = 10;
+    public static final int NET = 11;
+    public static final int PLACE = 13;
+    public static final int SIG = 15;
+    public static final int SOURCES = 16;
+    public static final int TIME = 18;
+    public static final int TSUNAMI = 20;
+    public static final int TYPE = 21;
+    public static final int UPDATED = 24;
+
+    public static final int COLUMN_COUNT = 26;
+    public static final int[] MAPPED_COLUMNS = {ALERT, CDI, CODE, FELT, MAG, MAG_TYPE, MMI, NET, PLACE, SIG, SOURCES, TIME, TSUNAMI, TYPE, UPDATED};
+
+    @Override
+    public UsgsEarthquake mapFieldSet(FieldSet fieldSet) {
+        UsgsEarthquake earthquake = new UsgsEarthquake();
+        earthquake.setAlertLevel(fieldSet.readRawString(ALERT));
+        earthquake.setCdi(parseDecimal(fieldSet.readRawString(CDI)));
+        earthquake.setFeltReports(parseDouble(fieldSet.readRawString(FELT)));
+        earthquake.setMagnitude(parseDecimal(fieldSet.readRawString(MAG)));
+        earthquake.setMagType(fieldSet.readRawString(MAG_TYPE));
+        earthquake.setMmi(parseDecimal(fieldSet.readRawString(MMI)));
+        earthquake.setPlace(fieldSet.readRawString(PLACE));
+        earthquake.setSignificance(parseInteger(fieldSet.readRawString(SIG)));
+        earthquake.setSourceId(fieldSet.readRawString(SOURCES));
+        earthquake.setTime(parseLong(fieldSet.readRawString(TIME)));
+        earthquake.setTsunami(parseBoolean(fieldSet.readRawString(TSUNAMI)));
+        earthquake.setEventType(fieldSet.readRawString(TYPE));
+        earthquake.setEventId(eventId(fieldSet.readRawString(NET), fieldSet.readRawString(CODE)));
+        earthquake.setUpdated(parseLong(fieldSet.readRawString(UPDATED)));
+        return earthquake;
+    }
+
+    // the USGS event id is the network followed by the event code, e.g. ci + 37389218
+    static String eventId(String net, String code) {
+        String trimmedNet = trimToNull(net);
+        String trimmedCode = trimToNull(code);
+        if (trimmedNet == null || trimmedCode == null) return null;
+        return trimmedNet + trimmedCode;
+    }
+
+    static Long parseLong(String value) {
+        String trimmed = trimToNull(value);
+        return trimmed == null ? null : Long.parseLong(trimmed);
+    }
+
+    static Integer parseInteger(String value) {
+        String trimmed = trimToNull(value);
+        return trimmed == null ? null : Integer.parseInt(trimmed);
+    }
+
+    static Double parseDouble(String value) {
+        String trimmed = trimToNull(value);
+        return trimmed == null ? null : Double.parseDouble(trimmed);
+    }
+
+    static BigDecimal parseDecimal(String value) {
+        String trimmed = trimToNull(value);
+        return trimmed == null ? null : new BigDecimal(trimmed);
+    }
+
+    // USGS uses 0/1, the textual forms are accepted as the bean wrapper did
+    static Boolean parseBoolean(String value) {
+        String trimmed = trimToNull(value);
+        if (trimmed == null) return null;
+        return switch (trimmed) {
+            case "1" -> Boolean.TRUE;
+            case "0" -> Boolean.FALSE;
+            default -> {
+                if (trimmed.equalsIgnoreCase("true")) yield Boolean.TRUE;
+                if (trimmed.equalsIgnoreCase("false")) yield Boolean.FALSE;
+                throw new IllegalArgumentException("Invalid boolean value: " + value);
+            }
+        };
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,106 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.step;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+
+import java.time.Duration;
+
+/**
+ * Chunk completion policy that resizes the chunk after every commit so writing and committing a chunk takes about
+ * the target latency.
+ * <p>
+ * The time from the start of the write to the end of the commit is measured per chunk and divided by the number of
+ * items written; the next chunk gets as many items as fit in the target latency. Each step changes the size by at most
+ * a factor of two and the size always stays within the configured bounds. A failed chunk halves the size. The current
+ * size is kept in the step execution context under {@value #CHUNK_SIZE_KEY}, a restarted step continues from it.
+ * <p>
+ * Holds the state of a single step execution, declare it step scoped.
+ */
+@Slf4j
+public class AdaptiveChunkCompletionPolicy extends SimpleCompletionPolicy
+    implements StepExecutionListener, ChunkListener, ItemWriteListener<Object> {
+
+    public static final String CHUNK_SIZE_KEY = "chunk-size";
+
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long targetLatencyNanos;
+
+    private long writeStartNanos;
+    private int writtenItems;
+
+    public AdaptiveChunkCompletionPolicy(int initialChunkSize, int minChunkSize, int maxChunkSize, Duration targetLatency) {
+        if (minChunkSize < 1 || minChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Invalid chunk size bounds: [" + minChunkSize + ", " + maxChunkSize + "]");
+        }
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        setChunkSize(clamp(initialChunkSize, minChunkSize, maxChunkSize));
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getExecutionContext().containsKey(CHUNK_SIZE_KEY)) {
+            setChunkSize(clamp(stepExecution.getExecutionContext().getInt(CHUNK_SIZE_KEY), minChunkSize, maxChunkSize));
+        }
+        stepExecution.getExecutionContext().putInt(CHUNK_SIZE_KEY, getChunkSize());
+    }
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        writeStartNanos = System.nanoTime();
+        writtenItems = items.size();
+    }
+
+    // called once the chunk transaction is committed
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (writtenItems > 0) {
+            resize(writtenItems, Duration.ofNanos(System.nanoTime() - writeStartNanos));
+            writtenItems = 0;
+        }
+        context.getStepContext().getStepExecution().getExecutionContext().putInt(CHUNK_SIZE_KEY, getChunkSize());
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        writtenItems = 0;
+        setChunkSize(Math.max(minChunkSize, getChunkSize() / 2));
+        log.debug(" >>> chunk failed, chunk size reduced to: [{}]", getChunkSize());
+    }
+
+    /**
+     * Sizes the next chunk from the time it took to write and commit the last one.
+     *
+     * @return the new chunk size
+     */
+    public int resize(int items, Duration elapsed) {
+        int current = getChunkSize();
+        long elapsedNanos = Math.max(1, elapsed.toNanos());
+        long fitting = items * targetLatencyNanos / elapsedNanos;
+
+        int next = (int) clamp(fitting, current / 2, (long) current * 2);
+        next = clamp(next, minChunkSize, maxChunkSize);
+        if (next != current) {
+            log.debug(" >>> chunk of [{}] items committed in [{}] ms, chunk size: [{}] -> [{}]",
+                items, elapsed.toMillis(), current, next);
+            setChunkSize(next);
+        }
+        return next;
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,148 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.step;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.FileRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BindException;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the rows skipped by a fault tolerant step to the {@code quarantined_rows} table, with their line number, raw
+ * line and the reasons they were rejected. Rows skipped while writing have no line number, the rejected item is stored
+ * in place of the raw line.
+ * <p>
+ * Spring Batch reports skips right before the chunk commits; they are only buffered then and inserted in one batch
+ * once the chunk is committed, in their own transaction, so the chunk transaction never waits on them and a rolled
+ * back chunk doesn't quarantine its rows twice. Line numbers count from the start of the partition byte range.
+ * <p>
+ * Holds the state of a single step execution, declare it step scoped.
+ */
+@Slf4j
+public class QuarantineSkipListener implements SkipListener<UsgsEarthquake, AnalyticsEarthquake>, ChunkListener, StepExecutionListener {
+
+    public static final String QUARANTINED_COUNT_KEY = "quarantined-count";
+
+    static final String INSERT_SQL = "insert into quarantined_rows " +
+        "(job_execution_id, step_execution_id, source, line_number, raw_line, errors) values (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<QuarantinedRow> pending = new ArrayList<>();
+    private long jobExecutionId;
+    private long stepExecutionId;
+    private String source;
+    private long quarantinedCount;
+
+    public QuarantineSkipListener(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        jobExecutionId = stepExecution.getJobExecutionId();
+        stepExecutionId = stepExecution.getId();
+        source = FileRange.fromPartition(stepExecution.getExecutionContext().toMap()).stream()
+            .map(range -> range.startOffset() == null
+                ? range.filename()
+                : range.filename() + "[" + range.startOffset() + ", " + range.endOffset() + ")")
+            .collect(Collectors.joining(", "));
+        quarantinedCount = stepExecution.getExecutionContext().getLong(QUARANTINED_COUNT_KEY, 0L);
+    }
+
+    @Override
+    public void onSkipInRead(Throwable t) {
+        if (t instanceof FlatFileParseException e) {
+            pending.add(new QuarantinedRow(e.getLineNumber(), e.getInput(), messages(e)));
+        } else {
+            pending.add(new QuarantinedRow(null, null, messages(t)));
+        }
+    }
+
+    @Override
+    public void onSkipInProcess(UsgsEarthquake item, Throwable t) {
+        pending.add(new QuarantinedRow(item.getLineNumber(), item.getRawLine(), messages(t)));
+    }
+
+    @Override
+    public void onSkipInWrite(AnalyticsEarthquake item, Throwable t) {
+        // processed items no longer know their source line, the item is kept as it was written
+        pending.add(new QuarantinedRow(null, item.toString(), messages(t)));
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        flush();
+        context.getStepContext().getStepExecution().getExecutionContext().putLong(QUARANTINED_COUNT_KEY, quarantinedCount);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        // the chunk is rolled back, its skips are reported again when it is processed anew
+        pending.clear();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        flush();
+        stepExecution.getExecutionContext().putLong(QUARANTINED_COUNT_KEY, quarantinedCount);
+        if (quarantinedCount > 0) {
+            log.warn(" >>> step [{}] quarantined [{}] rows from: [{}]", stepExecutionId, quarantinedCount, source);
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        for (QuarantinedRow row : pending) {
+            rows.add(new Object[]{jobExecutionId, stepExecutionId, source, row.lineNumber(), row.rawLine(), row.errors()});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+
+        quarantinedCount += pending.size();
+        log.debug(" >>> quarantined [{}] rows", pending.size());
+        pending.clear();
+    }
+
+    // field errors of validation failures, otherwise the messages of the exception and its causes
+    static String messages(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BindException bindException) {
+                return bindException.getFieldErrors().stream()
+                    .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                    .collect(Collectors.joining("; "));
+            }
+        }
+
+        StringBuilder messages = new StringBuilder(String.valueOf(t.getMessage()));
+        for (Throwable cause = t.getCause(); cause != null; cause = cause.getCause()) {
+            messages.append("; ").append(cause.getMessage());
+        }
+        return messages.toString();
+    }
+
+    private record QuarantinedRow(Integer lineNumber, String rawLine, String errors) {
+    }
+}
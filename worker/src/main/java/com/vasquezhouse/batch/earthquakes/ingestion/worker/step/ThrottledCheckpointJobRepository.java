@@ -0,0 +1,190 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.step;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the checkpoint of a running step to the job repository only every {@code intervalChunks} chunks or
+ * {@code interval}, whichever comes first, instead of after every chunk.
+ * <p>
+ * A chunk commit saves the execution context of the step, then the step execution with its counts, both in the chunk
+ * transaction. Between checkpoints both are skipped and the chunk commits with its data only; the step execution keeps
+ * counting in memory. Updates outside a chunk, when the step starts and ends, always go through. A restarted step
+ * resumes from the last checkpoint and writes the chunks committed since then again, the writer must be idempotent.
+ * A stop request is only noticed at a checkpoint, it is read while saving the step execution.
+ */
+@Slf4j
+public class ThrottledCheckpointJobRepository implements JobRepository {
+
+    private final JobRepository delegate;
+    private final int intervalChunks;
+    private final long intervalNanos;
+
+    // by step execution id, for the steps running on this worker
+    private final Map<Long, Checkpoints> checkpoints = new ConcurrentHashMap<>();
+
+    public ThrottledCheckpointJobRepository(JobRepository delegate, int intervalChunks, Duration interval) {
+        if (intervalChunks < 1 || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Checkpoint intervals must be positive");
+        }
+        this.delegate = delegate;
+        this.intervalChunks = intervalChunks;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        if (!isChunkCommit(stepExecution)) {
+            delegate.updateExecutionContext(stepExecution);
+            return;
+        }
+
+        Checkpoints state = checkpoints.computeIfAbsent(stepExecution.getId(), id -> new Checkpoints(System.nanoTime()));
+        state.chunks++;
+        state.due = state.chunks >= intervalChunks || System.nanoTime() - state.last >= intervalNanos;
+        if (state.due) {
+            delegate.updateExecutionContext(stepExecution);
+        }
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        if (!isChunkCommit(stepExecution)) {
+            if (stepExecution.getStatus() != BatchStatus.STARTED && stepExecution.getId() != null) {
+                checkpoints.remove(stepExecution.getId());
+            }
+            delegate.update(stepExecution);
+            return;
+        }
+
+        // always follows the execution context of the same chunk
+        Checkpoints state = checkpoints.get(stepExecution.getId());
+        if (state == null || state.due) {
+            delegate.update(stepExecution);
+            if (state != null) {
+                log.trace(" >>> checkpoint of {} after {} chunks", stepExecution.getStepName(), state.chunks);
+                state.chunks = 0;
+                state.last = System.nanoTime();
+                state.due = false;
+            }
+        }
+    }
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+        throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        return delegate.createJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        delegate.update(jobExecution);
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        delegate.add(stepExecution);
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        delegate.addAll(stepExecutions);
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        delegate.updateExecutionContext(jobExecution);
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return delegate.getLastStepExecution(jobInstance, stepName);
+    }
+
+    @Override
+    public long getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public List<String> getJobNames() {
+        return delegate.getJobNames();
+    }
+
+    @Override
+    public List<JobInstance> findJobInstancesByName(String jobName, int start, int count) {
+        return delegate.findJobInstancesByName(jobName, start, count);
+    }
+
+    @Override
+    public List<JobExecution> findJobExecutions(JobInstance jobInstance) {
+        return delegate.findJobExecutions(jobInstance);
+    }
+
+    @Override
+    public JobInstance getJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.getJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public void deleteStepExecution(StepExecution stepExecution) {
+        delegate.deleteStepExecution(stepExecution);
+    }
+
+    @Override
+    public void deleteJobExecution(JobExecution jobExecution) {
+        delegate.deleteJobExecution(jobExecution);
+    }
+
+    @Override
+    public void deleteJobInstance(JobInstance jobInstance) {
+        delegate.deleteJobInstance(jobInstance);
+    }
+
+    // chunks commit in a transaction, the step saves itself outside of one when it starts and ends
+    private static boolean isChunkCommit(StepExecution stepExecution) {
+        return stepExecution.getStatus() == BatchStatus.STARTED
+            && stepExecution.getId() != null
+            && TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    private static class Checkpoints {
+        private int chunks;
+        private long last;
+        private boolean due;
+
+        Checkpoints(long last) {
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import org.springframework.batch.item.database.ItemSqlParameterSourceProvider;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Types;
+
+/**
+ * Named parameters of {@link #INSERT_SQL} for an {@link AnalyticsEarthquake}, shared by the jdbc and upsert writers.
+ */
+public class EarthquakeSqlParameterSourceProvider implements ItemSqlParameterSourceProvider<AnalyticsEarthquake> {
+
+    public static final String INSERT_SQL = "insert into earthquakes (time, magnitude, place, state, country, tsunami, " +
+        "significance, mag_type, event_type, felt_reports, cdi, mmi, alert_level, source_id, event_id, source_updated_at) " +
+        "values (:time, :magnitude, :place, :state, :country, :tsunami, " +
+        ":significance, :magType, :eventType, :feltReports, :cdi, :mmi, :alertLevel, :sourceId, :eventId, :sourceUpdatedAt)";
+
+    // bean mapper did not work because of the instant type for time property, using manual mapping as workaround
+    @Override
+    public SqlParameterSource createSqlParameterSource(AnalyticsEarthquake item) {
+        MapSqlParameterSource source = new MapSqlParameterSource();
+        source.addValue("time", item.time(), Types.OTHER);
+        source.addValue("magnitude", item.magnitude());
+        source.addValue("place", item.place());
+        source.addValue("state", item.state());
+        source.addValue("country", item.country());
+        source.addValue("tsunami", item.tsunami());
+        source.addValue("significance", item.significance());
+        source.addValue("magType", item.magnitudeType(), Types.VARCHAR);
+        source.addValue("eventType", item.eventType(), Types.VARCHAR);
+        source.addValue("feltReports", item.feltReports());
+        // cdi is a list of comma-separated values we could use a CompositeItemWriter to insert them in a child table
+        source.addValue("cdi", item.cdi());
+        source.addValue("mmi", item.mmi());
+        source.addValue("alertLevel", item.alertLevel(), Types.VARCHAR);
+        source.addValue("sourceId", item.sourceId());
+        source.addValue("eventId", item.eventId());
+        source.addValue("sourceUpdatedAt", item.sourceUpdatedAt(), Types.OTHER);
+        return source;
+    }
+}
@@ -0,0 +1,112 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Writes a chunk only while the partition attempt holds the fence of its partition in {@code partition_fences}.
+ * <p>
+ * The manager re-publishes a straggler partition as a new step execution with the same name and a higher
+ * {@value #FENCING_TOKEN_KEY} (0 when absent). Every chunk claims the fence with the token of its attempt, in the same
+ * transaction as the write: the fence row stays locked until the chunk is written, a higher token takes the fence
+ * over, a lower one fails with {@link PartitionFencedException}, so two attempts never write the same partition at the
+ * same time. Once an attempt completes the partition the fence is closed, a late attempt fails on its first chunk.
+ * <p>
+ * The partition of a chunk is the step execution of the calling thread, the writer can be shared by concurrent steps.
+ */
+@Slf4j
+public class FencedItemWriter<T> implements ItemWriter<T>, StepExecutionListener {
+
+    public static final String FENCING_TOKEN_KEY = "fencing-token";
+
+    static final String CLAIM_SQL = "insert into partition_fences (job_execution_id, step_name, token, step_execution_id) " +
+        "values (?, ?, ?, ?) on conflict (job_execution_id, step_name) do update " +
+        "set token = excluded.token, step_execution_id = excluded.step_execution_id, updated_at = current_timestamp " +
+        "where not partition_fences.completed and (partition_fences.token < excluded.token " +
+        "or partition_fences.step_execution_id = excluded.step_execution_id)";
+
+    static final String COMPLETE_SQL = "update partition_fences set completed = true, updated_at = current_timestamp " +
+        "where job_execution_id = ? and step_name = ? and step_execution_id = ?";
+
+    private final ItemWriter<T> delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public FencedItemWriter(ItemWriter<T> delegate, DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (delegate instanceof StepExecutionListener listener) {
+            listener.beforeStep(stepExecution);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) {
+        StepExecution stepExecution = StepSynchronizationManager.getContext().getStepExecution();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!claim(stepExecution)) {
+                throw new PartitionFencedException(stepExecution.getStepName() + " [" + stepExecution.getId() +
+                    "] with token " + token(stepExecution) + " was fenced off by another attempt");
+            }
+            try {
+                delegate.write(chunk);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        ExitStatus exitStatus = delegate instanceof StepExecutionListener listener
+            ? listener.afterStep(stepExecution)
+            : stepExecution.getExitStatus();
+
+        if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+            transactionTemplate.executeWithoutResult(status -> {
+                // claimed again, a partition without rows never claimed the fence
+                if (claim(stepExecution)) {
+                    jdbcTemplate.update(COMPLETE_SQL,
+                        stepExecution.getJobExecutionId(), stepExecution.getStepName(), stepExecution.getId());
+                } else {
+                    log.warn(" >>> {} [{}] completed after another attempt took the partition over",
+                        stepExecution.getStepName(), stepExecution.getId());
+                }
+            });
+        }
+        return exitStatus;
+    }
+
+    private boolean claim(StepExecution stepExecution) {
+        return jdbcTemplate.update(CLAIM_SQL, stepExecution.getJobExecutionId(), stepExecution.getStepName(),
+            token(stepExecution), stepExecution.getId()) > 0;
+    }
+
+    private static int token(StepExecution stepExecution) {
+        return stepExecution.getExecutionContext().getInt(FENCING_TOKEN_KEY, 0);
+    }
+
+    public static class PartitionFencedException extends RuntimeException {
+        public PartitionFencedException(String message) {
+            super(message);
+        }
+    }
+}
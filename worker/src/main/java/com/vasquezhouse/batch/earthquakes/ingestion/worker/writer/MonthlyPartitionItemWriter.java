@@ -0,0 +1,80 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Creates the monthly partitions of {@code earthquakes} a chunk is about to write into, before writing it.
+ * <p>
+ * Rows of a month without a partition would land in the default partition, which every query on other months then
+ * scans too. Every chunk makes sure the partitions of its months exist, each in its own transaction so it is visible to
+ * the other workers right away. Nothing is remembered between chunks, a partition dropped meanwhile by retention is
+ * created anew; checking one that exists is a catalog lookup.
+ */
+@Slf4j
+public class MonthlyPartitionItemWriter implements ItemWriter<AnalyticsEarthquake>, StepExecutionListener {
+
+    static final String CREATE_PARTITION_SQL = "select create_earthquakes_partition(?)";
+
+    private final ItemWriter<AnalyticsEarthquake> delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public MonthlyPartitionItemWriter(ItemWriter<AnalyticsEarthquake> delegate,
+                                      DataSource dataSource,
+                                      PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (delegate instanceof StepExecutionListener listener) {
+            listener.beforeStep(stepExecution);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends AnalyticsEarthquake> chunk) throws Exception {
+        Set<YearMonth> months = new TreeSet<>();
+        for (AnalyticsEarthquake item : chunk) {
+            if (item.time() != null) {
+                months.add(YearMonth.from(item.time().atOffset(ZoneOffset.UTC)));
+            }
+        }
+
+        for (YearMonth month : months) {
+            OffsetDateTime monthStart = month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+            String partition = transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject(CREATE_PARTITION_SQL, String.class, monthStart));
+            log.trace(" >>> partition [{}] ready", partition);
+        }
+
+        delegate.write(chunk);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return delegate instanceof StepExecutionListener listener
+            ? listener.afterStep(stepExecution)
+            : stepExecution.getExitStatus();
+    }
+}
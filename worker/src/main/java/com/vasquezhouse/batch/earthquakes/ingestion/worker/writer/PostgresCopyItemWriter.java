@@ -0,0 +1,171 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Streams each chunk using the PostgreSQL COPY protocol (text format) into a temporary table, then inserts it into
+ * {@code earthquakes} with a single {@code insert ... select}.
+ * <p>
+ * Rows are encoded straight into a single COPY buffer, so there is no per-row parameter map and only one round trip
+ * per chunk to load them.
+ * <p>
+ * The COPY, the insert and the temporary table's cleanup run in one analytics transaction, joining the one opened by a
+ * wrapping writer, like {@link RollupItemWriter}. That transaction commits apart from the chunk, which runs on the batch
+ * transaction manager, so a chunk whose commit fails after it is written again when the partition restarts. The insert
+ * skips the rows already stored: events by {@code on conflict (event_id, time)}, rows without an event id when a row
+ * with the same time, source and place is stored. A replayed chunk, a re-published partition or a throttled checkpoint
+ * therefore store every row once.
+ * <p>
+ * The temporary table lives as long as the pooled connection and is emptied after every chunk.
+ */
+@Slf4j
+public class PostgresCopyItemWriter implements ItemWriter<AnalyticsEarthquake> {
+
+    static final String COLUMNS = "time, magnitude, place, state, country, tsunami, significance, mag_type, " +
+        "event_type, felt_reports, cdi, mmi, alert_level, source_id, event_id, source_updated_at";
+
+    static final String COPY_TABLE = "earthquakes_copy";
+
+    static final String CREATE_COPY_TABLE_SQL = "create temporary table if not exists " + COPY_TABLE +
+        " as select " + COLUMNS + " from earthquakes with no data";
+
+    static final String COPY_SQL = "COPY " + COPY_TABLE + " (" + COLUMNS + ") FROM STDIN";
+
+    // rows without an event id can't conflict, they are matched on the columns identifying them in the source file
+    static final String INSERT_SQL = "insert into earthquakes (" + COLUMNS + ") " +
+        "select " + COLUMNS + " from " + COPY_TABLE + " copied " +
+        "where copied.event_id is not null or not exists (select 1 from earthquakes stored " +
+        "where stored.event_id is null and stored.time = copied.time and stored.source_id = copied.source_id " +
+        "and stored.place = copied.place) " +
+        "on conflict (event_id, time) do nothing";
+
+    static final String TRUNCATE_COPY_TABLE_SQL = "truncate " + COPY_TABLE;
+
+    // rough size of an encoded row, used to pre-size the buffer and avoid re-allocations
+    private static final int ESTIMATED_ROW_SIZE = 160;
+
+    private static final char DELIMITER = '\t';
+    private static final String NULL = "\\N";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PostgresCopyItemWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // joins the transaction of a wrapping writer on the same data source
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    public void write(Chunk<? extends AnalyticsEarthquake> chunk) throws Exception {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        StringBuilder buffer = new StringBuilder(chunk.size() * ESTIMATED_ROW_SIZE);
+        for (AnalyticsEarthquake item : chunk) {
+            encode(item, buffer);
+        }
+        load(buffer.toString());
+    }
+
+    protected void load(String rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute(CREATE_COPY_TABLE_SQL);
+            long copied = copy(COPY_SQL, rows);
+            int inserted = jdbcTemplate.update(INSERT_SQL);
+            jdbcTemplate.execute(TRUNCATE_COPY_TABLE_SQL);
+            log.debug(" >>> copied {} rows, inserted {}", copied, inserted);
+        });
+    }
+
+    // on the connection of the current transaction, if any
+    protected long copy(String copySql, String rows) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            return copyManager.copyIn(copySql, new StringReader(rows));
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY failed: " + copySql, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    static void encode(AnalyticsEarthquake item, StringBuilder buffer) {
+        // Instant.toString() is ISO-8601 in UTC, which postgres parses into timestamptz
+        appendValue(buffer, item.time() == null ? null : item.time().toString()).append(DELIMITER);
+        appendDecimal(buffer, item.magnitude()).append(DELIMITER);
+        appendText(buffer, item.place()).append(DELIMITER);
+        appendText(buffer, item.state()).append(DELIMITER);
+        appendText(buffer, item.country()).append(DELIMITER);
+        appendBoolean(buffer, item.tsunami()).append(DELIMITER);
+        appendInteger(buffer, item.significance()).append(DELIMITER);
+        appendValue(buffer, item.magnitudeType() == null ? null : item.magnitudeType().name()).append(DELIMITER);
+        appendValue(buffer, item.eventType() == null ? null : item.eventType().name()).append(DELIMITER);
+        appendInteger(buffer, item.feltReports()).append(DELIMITER);
+        appendDecimal(buffer, item.cdi()).append(DELIMITER);
+        appendDecimal(buffer, item.mmi()).append(DELIMITER);
+        appendValue(buffer, item.alertLevel() == null ? null : item.alertLevel().name()).append(DELIMITER);
+        appendText(buffer, item.sourceId()).append(DELIMITER);
+        appendText(buffer, item.eventId()).append(DELIMITER);
+        appendValue(buffer, item.sourceUpdatedAt() == null ? null : item.sourceUpdatedAt().toString()).append('\n');
+    }
+
+    // values that can never contain characters special to the COPY text format
+    private static StringBuilder appendValue(StringBuilder buffer, String value) {
+        return value == null ? buffer.append(NULL) : buffer.append(value);
+    }
+
+    private static StringBuilder appendDecimal(StringBuilder buffer, BigDecimal value) {
+        return value == null ? buffer.append(NULL) : buffer.append(value.toPlainString());
+    }
+
+    private static StringBuilder appendInteger(StringBuilder buffer, Integer value) {
+        return value == null ? buffer.append(NULL) : buffer.append(value.intValue());
+    }
+
+    private static StringBuilder appendBoolean(StringBuilder buffer, Boolean value) {
+        return value == null ? buffer.append(NULL) : buffer.append(value ? 't' : 'f');
+    }
+
+    // free text, escapes backslash, delimiter and line breaks as required by the COPY text format
+    private static StringBuilder appendText(StringBuilder buffer, String value) {
+        if (value == null) {
+            return buffer.append(NULL);
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,66 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Writes a chunk and refreshes the hourly and daily rollups of {@code earthquakes} it changed, in a single transaction
+ * of the analytics database.
+ * <p>
+ * Triggers on {@code earthquakes} record the buckets of every row the delegate inserts, updates or deletes, including
+ * the older revisions the upsert writer deletes. {@code refresh_earthquake_rollups} then recomputes those buckets from
+ * the stored rows, so the rollups are the same whether a chunk was written once or replayed after a restart.
+ */
+@Slf4j
+public class RollupItemWriter<T> implements ItemWriter<T>, StepExecutionListener {
+
+    static final String REFRESH_SQL = "select refresh_earthquake_rollups()";
+
+    private final ItemWriter<T> delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public RollupItemWriter(ItemWriter<T> delegate, DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (delegate instanceof StepExecutionListener listener) {
+            listener.beforeStep(stepExecution);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                delegate.write(chunk);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            Integer buckets = jdbcTemplate.queryForObject(REFRESH_SQL, Integer.class);
+            log.trace(" >>> rollups of [{}] hourly buckets refreshed", buckets);
+        });
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return delegate instanceof StepExecutionListener listener
+            ? listener.afterStep(stepExecution)
+            : stepExecution.getExitStatus();
+    }
+}
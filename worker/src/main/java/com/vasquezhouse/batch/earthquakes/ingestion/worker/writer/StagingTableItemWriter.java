@@ -0,0 +1,33 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Streams each chunk with the COPY protocol into the UNLOGGED staging table of the job instead of {@code earthquakes}.
+ * <p>
+ * The staging table is created by the manager before it publishes the partitions and merged into {@code earthquakes}
+ * once they all completed. It is named after the job instance of the step execution of the calling thread, the writer
+ * can be shared by concurrent steps of different jobs.
+ */
+public class StagingTableItemWriter extends PostgresCopyItemWriter {
+
+    public StagingTableItemWriter(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    // same naming as the manager's StagingTable
+    public static String tableName(long jobInstanceId) {
+        return "earthquakes_staging_" + jobInstanceId;
+    }
+
+    // straight into the staging table, rows written twice are merged once by the manager
+    @Override
+    protected void load(String rows) {
+        StepExecution stepExecution = StepSynchronizationManager.getContext().getStepExecution();
+        copy("COPY " + tableName(stepExecution.getJobExecution().getJobInstance().getInstanceId()) +
+            " (" + COLUMNS + ") FROM STDIN", rows);
+    }
+}
@@ -0,0 +1,183 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker.writer;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes earthquakes idempotently, keyed on the USGS event id: re-ingested events only replace the stored row when
+ * USGS revised them after the stored version.
+ * <p>
+ * Most rows of a job are new, so a Bloom filter of the event ids already stored or written by the job splits every
+ * chunk in two. Ids the filter has never seen are certainly new and go through a plain batched insert; only the rest
+ * pay for the {@code on conflict} path. The filter is seeded from the table once per job and shared by the partitions
+ * the worker runs for that job. The plain insert runs under a savepoint, if another worker inserted one of the events
+ * in the meantime it is rolled back and the rows are upserted instead.
+ * <p>
+ * The table is partitioned by time, so events are only unique per time: once inserted or upserted, the older revisions
+ * of events that USGS moved to another time are deleted. Inserted rows need it too, the filters of other workers or of
+ * a job seeded before another one wrote may miss a revision stored at another time. Only committed revisions are seen:
+ * two revisions of an event written by chunks committing at the same time are both kept until the event is written
+ * again.
+ */
+@Slf4j
+public class UpsertItemWriter implements ItemWriter<AnalyticsEarthquake>, StepExecutionListener {
+
+    static final String UPSERT_SQL = EarthquakeSqlParameterSourceProvider.INSERT_SQL + " on conflict (event_id, time) do update set " +
+        "time = excluded.time, magnitude = excluded.magnitude, place = excluded.place, state = excluded.state, " +
+        "country = excluded.country, tsunami = excluded.tsunami, significance = excluded.significance, " +
+        "mag_type = excluded.mag_type, event_type = excluded.event_type, felt_reports = excluded.felt_reports, " +
+        "cdi = excluded.cdi, mmi = excluded.mmi, alert_level = excluded.alert_level, source_id = excluded.source_id, " +
+        "source_updated_at = excluded.source_updated_at, updated_at = current_timestamp " +
+        "where earthquakes.source_updated_at is null or earthquakes.source_updated_at < excluded.source_updated_at";
+
+    // events are unique per time only, a revision that moved the event to another time leaves the older one behind
+    static final String DELETE_SUPERSEDED_SQL = "delete from earthquakes stored where stored.event_id = :eventId " +
+        "and exists (select 1 from earthquakes newer where newer.event_id = stored.event_id and newer.time <> stored.time " +
+        "and newer.source_updated_at is not null " +
+        "and (stored.source_updated_at is null or stored.source_updated_at < newer.source_updated_at))";
+
+    private static final String COUNT_SQL = "select count(event_id) from earthquakes";
+    private static final String EVENT_IDS_SQL = "select event_id from earthquakes where event_id is not null";
+
+    private static final int SEED_FETCH_SIZE = 10_000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate savepointTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final EarthquakeSqlParameterSourceProvider parameterSourceProvider = new EarthquakeSqlParameterSourceProvider();
+    private final long expectedNewRows;
+    private final double falsePositiveProbability;
+
+    private Long filterJobExecutionId;
+    private volatile BloomFilter filter;
+
+    public UpsertItemWriter(DataSource dataSource,
+                            PlatformTransactionManager transactionManager,
+                            long expectedNewRows,
+                            double falsePositiveProbability) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.savepointTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.expectedNewRows = expectedNewRows;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    @Override
+    public synchronized void beforeStep(StepExecution stepExecution) {
+        Long jobExecutionId = stepExecution.getJobExecutionId();
+        if (filter == null || !jobExecutionId.equals(filterJobExecutionId)) {
+            filter = seedFilter();
+            filterJobExecutionId = jobExecutionId;
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends AnalyticsEarthquake> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BloomFilter currentFilter = filter != null ? filter : seedOnFirstWrite();
+
+        List<AnalyticsEarthquake> newItems = new ArrayList<>(chunk.size());
+        List<AnalyticsEarthquake> seenItems = new ArrayList<>();
+        for (AnalyticsEarthquake item : chunk) {
+            String eventId = item.eventId();
+            if (eventId == null) {
+                newItems.add(item); // can't conflict
+            } else if (currentFilter.mightContain(eventId)) {
+                seenItems.add(item);
+            } else {
+                // added right away so a repeated event in the same chunk is upserted after the first one is inserted
+                currentFilter.put(eventId);
+                newItems.add(item);
+            }
+        }
+
+        if (!newItems.isEmpty()) {
+            if (insert(newItems)) {
+                deleteSuperseded(newItems);
+            } else {
+                newItems.addAll(seenItems);
+                seenItems = newItems;
+            }
+        }
+        if (!seenItems.isEmpty()) {
+            SqlParameterSource[] parameters = toParameters(seenItems);
+            jdbcTemplate.batchUpdate(UPSERT_SQL, parameters);
+            jdbcTemplate.batchUpdate(DELETE_SUPERSEDED_SQL, parameters);
+        }
+        log.debug(" >>> earthquakes written: [{}] inserted: [{}] upserted: [{}]",
+            chunk.size(), chunk.size() - seenItems.size(), seenItems.size());
+    }
+
+    private boolean insert(List<AnalyticsEarthquake> items) {
+        try {
+            savepointTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(EarthquakeSqlParameterSourceProvider.INSERT_SQL, toParameters(items)));
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug(" >>> event already stored by another writer, upserting the chunk instead", e);
+            return false;
+        }
+    }
+
+    private void deleteSuperseded(List<AnalyticsEarthquake> insertedItems) {
+        List<AnalyticsEarthquake> events = insertedItems.stream().filter(item -> item.eventId() != null).toList();
+        if (!events.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SUPERSEDED_SQL, toParameters(events));
+        }
+    }
+
+    private SqlParameterSource[] toParameters(List<AnalyticsEarthquake> items) {
+        SqlParameterSource[] parameters = new SqlParameterSource[items.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = parameterSourceProvider.createSqlParameterSource(items.get(i));
+        }
+        return parameters;
+    }
+
+    // used when the writer is not registered as a step listener, e.g. called directly
+    private synchronized BloomFilter seedOnFirstWrite() {
+        if (filter == null) {
+            filter = seedFilter();
+        }
+        return filter;
+    }
+
+    private BloomFilter seedFilter() {
+        return readOnlyTemplate.execute(status -> {
+            Long storedRows = jdbcTemplate.getJdbcTemplate().queryForObject(COUNT_SQL, Long.class);
+            long stored = storedRows == null ? 0 : storedRows;
+            BloomFilter seeded = new BloomFilter(stored + expectedNewRows, falsePositiveProbability);
+
+            // pgjdbc only streams with a fetch size inside a transaction, which is why this runs in one
+            jdbcTemplate.getJdbcTemplate().query(con -> {
+                PreparedStatement statement = con.prepareStatement(EVENT_IDS_SQL);
+                statement.setFetchSize(SEED_FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> seeded.put(rs.getString(1)));
+
+            log.info(" >>> event id bloom filter seeded with [{}] stored events, size: [{}] bits", stored, seeded.bitSize());
+            return seeded;
+        });
+    }
+}
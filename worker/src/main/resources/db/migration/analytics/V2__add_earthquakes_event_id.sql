@@ -0,0 +1,9 @@
+-- USGS event id (network + code) and the time USGS last revised the event, used to upsert re-ingested events.
+-- source_id holds the contributing networks (e.g. ",ci,") and can't identify an event.
+ALTER TABLE earthquakes
+    ADD COLUMN event_id          VARCHAR(40),
+    ADD COLUMN source_updated_at TIMESTAMP WITH TIME ZONE;
+
+-- Arbiter index for INSERT ... ON CONFLICT (event_id). Rows loaded before this migration have no event id, and
+-- NULLs don't conflict with each other
+CREATE UNIQUE INDEX idx_earthquakes_event_id ON earthquakes (event_id);
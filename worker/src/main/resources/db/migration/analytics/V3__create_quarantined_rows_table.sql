@@ -0,0 +1,15 @@
+-- Rows skipped by the worker when app.invalid-row-mode=quarantine, kept for inspection and re-ingestion.
+-- source lists the partition file ranges, line numbers count from the start of the range
+CREATE TABLE quarantined_rows
+(
+    id                SERIAL PRIMARY KEY,
+    job_execution_id  BIGINT                   NOT NULL,
+    step_execution_id BIGINT                   NOT NULL,
+    source            TEXT,
+    line_number       INTEGER,
+    raw_line          TEXT,
+    errors            TEXT                     NOT NULL,
+    created_at        TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_quarantined_rows_job ON quarantined_rows (job_execution_id);
@@ -0,0 +1,12 @@
+-- Fencing tokens of the partitions re-published by the manager when they straggle: only the attempt holding the
+-- highest token writes, and no attempt writes once one of them completed the partition.
+CREATE TABLE partition_fences
+(
+    job_execution_id  BIGINT                   NOT NULL,
+    step_name         VARCHAR(100)             NOT NULL,
+    token             INTEGER                  NOT NULL,
+    step_execution_id BIGINT                   NOT NULL,
+    completed         BOOLEAN                  NOT NULL DEFAULT FALSE,
+    updated_at        TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (job_execution_id, step_name)
+);
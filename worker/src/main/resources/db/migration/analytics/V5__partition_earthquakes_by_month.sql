@@ -0,0 +1,137 @@
+-- Turns earthquakes into a table range partitioned by month of time (UTC), named earthquakes_YYYY_MM. Queries filtering
+-- on time only scan the partitions of their range, every partition has its own smaller indexes, and old months are
+-- removed by dropping their partition instead of deleting rows.
+-- The partition key must be part of every unique index: the primary key becomes (id, time), still unique since ids
+-- come from a sequence, and events are unique on (event_id, time).
+
+DROP MATERIALIZED VIEW recent_earthquakes;
+
+ALTER TABLE earthquakes RENAME TO earthquakes_unpartitioned;
+-- kept, the ids of the stored rows don't change
+ALTER SEQUENCE earthquakes_id_seq OWNED BY NONE;
+
+CREATE TABLE earthquakes
+(
+    id                INTEGER                  NOT NULL DEFAULT nextval('earthquakes_id_seq'),
+    time              TIMESTAMP WITH TIME ZONE NOT NULL,
+    magnitude         DECIMAL(3, 1),
+    place             VARCHAR(255)             NOT NULL,
+    state             VARCHAR(255),
+    country           VARCHAR(255)             NOT NULL,
+    tsunami           BOOLEAN                  DEFAULT false,
+    significance      INTEGER,
+    mag_type          VARCHAR(10),
+    event_type        VARCHAR(50)              DEFAULT 'earthquake',
+    felt_reports      INTEGER                  DEFAULT 0,
+    cdi               DECIMAL(3, 1),
+    mmi               DECIMAL(3, 1),
+    alert_level       VARCHAR(10),
+    source_id         VARCHAR(20)              NOT NULL,
+    created_at        TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at        TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    event_id          VARCHAR(40),
+    source_updated_at TIMESTAMP WITH TIME ZONE
+) PARTITION BY RANGE (time);
+
+ALTER SEQUENCE earthquakes_id_seq OWNED BY earthquakes.id;
+
+-- Catches rows of months without a partition yet, emptied into the partition of their month when it is created.
+-- Ingestion creates the partitions before writing, so it normally stays empty
+CREATE TABLE earthquakes_default PARTITION OF earthquakes DEFAULT;
+
+-- Creates the partition of the month of the given time unless it exists, moving the rows of that month out of the
+-- default partition. Safe to call concurrently, and cheap once the partition exists. Returns the partition name
+CREATE FUNCTION create_earthquakes_partition(month_of TIMESTAMP WITH TIME ZONE) RETURNS TEXT AS
+$$
+DECLARE
+    month_utc      TIMESTAMP := date_trunc('month', month_of AT TIME ZONE 'UTC');
+    month_start    TIMESTAMP WITH TIME ZONE := month_utc AT TIME ZONE 'UTC';
+    month_end      TIMESTAMP WITH TIME ZONE := (month_utc + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    partition_name TEXT := 'earthquakes_' || to_char(month_utc, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    PERFORM pg_advisory_xact_lock(hashtext('earthquakes_partitions'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    -- attaching a partition fails while the default partition holds rows of its range
+    EXECUTE format('CREATE TABLE %I (LIKE earthquakes INCLUDING DEFAULTS)', partition_name);
+    EXECUTE format('INSERT INTO %I SELECT * FROM earthquakes_default WHERE time >= %L AND time < %L',
+                   partition_name, month_start, month_end);
+    EXECUTE format('DELETE FROM earthquakes_default WHERE time >= %L AND time < %L', month_start, month_end);
+    EXECUTE format('ALTER TABLE earthquakes ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, month_start, month_end);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detaches and drops the partitions of the months that ended before the cutoff, e.g. for a retention period:
+-- SELECT drop_earthquakes_partitions_before(now() - INTERVAL '10 years');
+-- Only the catalog changes, no row is deleted one by one and nothing is left to vacuum. Returns the dropped partitions
+CREATE FUNCTION drop_earthquakes_partitions_before(cutoff TIMESTAMP WITH TIME ZONE) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'earthquakes'::regclass
+          AND c.relname ~ '^earthquakes_\d{4}_\d{2}$'
+          AND (to_date(substring(c.relname FROM 13), 'YYYY_MM') + INTERVAL '1 month') AT TIME ZONE 'UTC' <= cutoff
+        ORDER BY c.relname
+        LOOP
+            EXECUTE format('ALTER TABLE earthquakes DETACH PARTITION %I', partition_name);
+            EXECUTE format('DROP TABLE %I', partition_name);
+            RETURN NEXT partition_name;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_earthquakes_partition(month_of)
+FROM (SELECT DISTINCT date_trunc('month', time AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS month_of
+      FROM earthquakes_unpartitioned) months;
+
+INSERT INTO earthquakes (id, time, magnitude, place, state, country, tsunami, significance, mag_type, event_type,
+                         felt_reports, cdi, mmi, alert_level, source_id, created_at, updated_at, event_id,
+                         source_updated_at)
+SELECT id, time, magnitude, place, state, country, tsunami, significance, mag_type, event_type,
+       felt_reports, cdi, mmi, alert_level, source_id, created_at, updated_at, event_id, source_updated_at
+FROM earthquakes_unpartitioned
+ORDER BY time;
+
+DROP TABLE earthquakes_unpartitioned;
+
+-- Indexes of the partitioned table are created on every partition, existing and future
+ALTER TABLE earthquakes ADD PRIMARY KEY (id, time);
+
+CREATE INDEX idx_earthquakes_time_mag ON earthquakes (time DESC, magnitude);
+
+CREATE INDEX idx_earthquakes_time_id ON earthquakes (time DESC, id DESC);
+
+CREATE INDEX idx_significant_earthquakes ON earthquakes (time, magnitude, country)
+    WHERE magnitude >= 4.0;
+
+CREATE INDEX idx_earthquakes_tsunami ON earthquakes (tsunami, magnitude)
+    WHERE tsunami = true;
+
+CREATE INDEX idx_earthquakes_common_cols ON earthquakes
+    (time, magnitude, country)
+    INCLUDE (place, alert_level, felt_reports);
+
+-- Arbiter index for INSERT ... ON CONFLICT (event_id, time). An event USGS moved to another time is stored as a new
+-- row, the upsert writer and the staging merge then delete its older revision
+CREATE UNIQUE INDEX idx_earthquakes_event_id ON earthquakes (event_id, time);
+
+CREATE MATERIALIZED VIEW recent_earthquakes AS
+SELECT *
+FROM earthquakes
+WHERE time >= NOW() - INTERVAL '3 months'
+WITH DATA;
+
+CREATE INDEX idx_recent_earthquakes_mv ON recent_earthquakes (time DESC, magnitude);
@@ -0,0 +1,5 @@
+-- Keyset pagination of the analytics API: every sort field is paged on (sort column, id), read forward or backward
+-- for both sort directions. idx_earthquakes_time_id already covers sorting by time.
+CREATE INDEX idx_earthquakes_magnitude_id ON earthquakes (magnitude, id);
+
+CREATE INDEX idx_earthquakes_significance_id ON earthquakes (significance, id);
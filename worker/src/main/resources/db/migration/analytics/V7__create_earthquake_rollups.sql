@@ -0,0 +1,212 @@
+-- Hourly and daily aggregates of earthquakes per country, in UTC buckets, so stats over long time ranges read a few
+-- rollup rows per day instead of every earthquake. The average magnitude is magnitude_sum / magnitude_count, earthquakes
+-- without magnitude are counted but not averaged.
+-- Triggers on earthquakes record the buckets every statement touches in earthquake_rollups_pending, then
+-- refresh_earthquake_rollups() recomputes them from the rows, in the same transaction: the workers call it after every
+-- chunk and the staging merge after merging.
+
+CREATE TABLE earthquake_rollups_hourly
+(
+    bucket           TIMESTAMP WITH TIME ZONE NOT NULL,
+    country          VARCHAR(255)             NOT NULL,
+    earthquake_count BIGINT                   NOT NULL,
+    magnitude_count  BIGINT                   NOT NULL,
+    magnitude_sum    DECIMAL                  NOT NULL,
+    max_magnitude    DECIMAL(3, 1),
+    tsunami_count    BIGINT                   NOT NULL,
+    PRIMARY KEY (bucket, country)
+);
+
+CREATE TABLE earthquake_rollups_daily
+(
+    bucket           TIMESTAMP WITH TIME ZONE NOT NULL,
+    country          VARCHAR(255)             NOT NULL,
+    earthquake_count BIGINT                   NOT NULL,
+    magnitude_count  BIGINT                   NOT NULL,
+    magnitude_sum    DECIMAL                  NOT NULL,
+    max_magnitude    DECIMAL(3, 1),
+    tsunami_count    BIGINT                   NOT NULL,
+    PRIMARY KEY (bucket, country)
+);
+
+-- Hourly buckets written since their rollups were last recomputed. The rows of a transaction are only visible to it
+-- until it refreshes them, left over rows of writes that never refreshed are picked up by the next refresh
+CREATE TABLE earthquake_rollups_pending
+(
+    bucket  TIMESTAMP WITH TIME ZONE NOT NULL,
+    country VARCHAR(255)             NOT NULL
+);
+
+INSERT INTO earthquake_rollups_hourly (bucket, country, earthquake_count, magnitude_count, magnitude_sum,
+                                       max_magnitude, tsunami_count)
+SELECT date_trunc('hour', time AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+       country,
+       count(*),
+       count(magnitude),
+       coalesce(sum(magnitude), 0),
+       max(magnitude),
+       count(*) FILTER (WHERE tsunami)
+FROM earthquakes
+GROUP BY 1, 2;
+
+INSERT INTO earthquake_rollups_daily (bucket, country, earthquake_count, magnitude_count, magnitude_sum,
+                                      max_magnitude, tsunami_count)
+SELECT date_trunc('day', bucket AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+       country,
+       sum(earthquake_count),
+       sum(magnitude_count),
+       sum(magnitude_sum),
+       max(max_magnitude),
+       sum(tsunami_count)
+FROM earthquake_rollups_hourly
+GROUP BY 1, 2;
+
+-- Statement level, once per statement whatever its number of rows. Upserts fire both the insert and the update
+-- triggers, rows moved between partitions by create_earthquakes_partition don't fire them, their buckets don't change
+CREATE FUNCTION track_earthquake_rollups() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO earthquake_rollups_pending (bucket, country)
+        SELECT DISTINCT date_trunc('hour', time AT TIME ZONE 'UTC') AT TIME ZONE 'UTC', country
+        FROM new_rows;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        INSERT INTO earthquake_rollups_pending (bucket, country)
+        SELECT DISTINCT date_trunc('hour', time AT TIME ZONE 'UTC') AT TIME ZONE 'UTC', country
+        FROM old_rows;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- a trigger with transition tables can only fire on a single event
+CREATE TRIGGER earthquakes_rollups_insert
+    AFTER INSERT
+    ON earthquakes
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION track_earthquake_rollups();
+
+CREATE TRIGGER earthquakes_rollups_update
+    AFTER UPDATE
+    ON earthquakes
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION track_earthquake_rollups();
+
+CREATE TRIGGER earthquakes_rollups_delete
+    AFTER DELETE
+    ON earthquakes
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION track_earthquake_rollups();
+
+-- Recomputes the hourly rollups of the pending buckets from the earthquakes, then the daily rollups of their days from
+-- the hourly ones. Recomputed rather than incremented, so the rows written twice by a replayed chunk, updated events
+-- and smaller maximums after a delete all end up right. Returns the number of hourly buckets refreshed
+CREATE FUNCTION refresh_earthquake_rollups() RETURNS INTEGER AS
+$$
+DECLARE
+    hours     TIMESTAMP WITH TIME ZONE[];
+    countries TEXT[];
+    lock_key  INTEGER;
+BEGIN
+    WITH pending AS (DELETE FROM earthquake_rollups_pending RETURNING bucket, country)
+    SELECT array_agg(bucket), array_agg(country)
+    INTO hours, countries
+    FROM (SELECT DISTINCT bucket, country FROM pending) touched;
+
+    IF hours IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    -- One lock per day and country, covering its hourly and daily rollups. Taken in a fixed order, so concurrent
+    -- refreshes of the same buckets wait for each other instead of deadlocking, and the one waiting recomputes them
+    -- with the rows of the other once it committed
+    FOR lock_key IN
+        SELECT DISTINCT hashtext(country || '@' || extract(EPOCH FROM date_trunc('day', bucket AT TIME ZONE 'UTC')))
+        FROM unnest(hours, countries) AS touched(bucket, country)
+        ORDER BY 1
+        LOOP
+            PERFORM pg_advisory_xact_lock(hashtext('earthquake_rollups'), lock_key);
+        END LOOP;
+
+    DELETE
+    FROM earthquake_rollups_hourly rollup
+        USING unnest(hours, countries) AS touched(bucket, country)
+    WHERE rollup.bucket = touched.bucket
+      AND rollup.country = touched.country;
+
+    INSERT INTO earthquake_rollups_hourly (bucket, country, earthquake_count, magnitude_count, magnitude_sum,
+                                           max_magnitude, tsunami_count)
+    SELECT touched.bucket,
+           touched.country,
+           count(*),
+           count(e.magnitude),
+           coalesce(sum(e.magnitude), 0),
+           max(e.magnitude),
+           count(*) FILTER (WHERE e.tsunami)
+    FROM unnest(hours, countries) AS touched(bucket, country)
+             JOIN earthquakes e
+                  ON e.time >= touched.bucket
+                      AND e.time < touched.bucket + INTERVAL '1 hour'
+                      AND e.country = touched.country
+    GROUP BY touched.bucket, touched.country;
+
+    DELETE
+    FROM earthquake_rollups_daily rollup
+        USING (SELECT DISTINCT date_trunc('day', bucket AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket, country
+               FROM unnest(hours, countries) AS touched(bucket, country)) touched
+    WHERE rollup.bucket = touched.bucket
+      AND rollup.country = touched.country;
+
+    INSERT INTO earthquake_rollups_daily (bucket, country, earthquake_count, magnitude_count, magnitude_sum,
+                                          max_magnitude, tsunami_count)
+    SELECT touched.bucket,
+           touched.country,
+           sum(hourly.earthquake_count),
+           sum(hourly.magnitude_count),
+           sum(hourly.magnitude_sum),
+           max(hourly.max_magnitude),
+           sum(hourly.tsunami_count)
+    FROM (SELECT DISTINCT date_trunc('day', bucket AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket, country
+          FROM unnest(hours, countries) AS touched(bucket, country)) touched
+             JOIN earthquake_rollups_hourly hourly
+                  ON hourly.bucket >= touched.bucket
+                      AND hourly.bucket < touched.bucket + INTERVAL '24 hours'
+                      AND hourly.country = touched.country
+    GROUP BY touched.bucket, touched.country;
+
+    RETURN cardinality(hours);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Dropping a partition fires no delete trigger, the rollups of the dropped months are deleted with them
+CREATE OR REPLACE FUNCTION drop_earthquakes_partitions_before(cutoff TIMESTAMP WITH TIME ZONE) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    partition_name TEXT;
+    dropped_until  TIMESTAMP WITH TIME ZONE;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'earthquakes'::regclass
+          AND c.relname ~ '^earthquakes_\d{4}_\d{2}$'
+          AND (to_date(substring(c.relname FROM 13), 'YYYY_MM') + INTERVAL '1 month') AT TIME ZONE 'UTC' <= cutoff
+        ORDER BY c.relname
+        LOOP
+            EXECUTE format('ALTER TABLE earthquakes DETACH PARTITION %I', partition_name);
+            EXECUTE format('DROP TABLE %I', partition_name);
+            dropped_until := (to_date(substring(partition_name FROM 13), 'YYYY_MM') + INTERVAL '1 month') AT TIME ZONE 'UTC';
+            RETURN NEXT partition_name;
+        END LOOP;
+
+    IF dropped_until IS NOT NULL THEN
+        DELETE FROM earthquake_rollups_hourly WHERE bucket < dropped_until;
+        DELETE FROM earthquake_rollups_daily WHERE bucket < dropped_until;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,89 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.step.AdaptiveChunkCompletionPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveChunkCompletionPolicyTest {
+
+    private static final Duration TARGET = Duration.ofMillis(500);
+
+    @Test
+    void growsWhenCommitsAreFast() {
+        // arrange
+        AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(100, 50, 5000, TARGET);
+
+        // act/assert: 100 items in 50 ms fit 1000 in the target, growth is capped at twice the size per chunk
+        assertThat(policy.resize(100, Duration.ofMillis(50))).isEqualTo(200);
+        assertThat(policy.resize(200, Duration.ofMillis(100))).isEqualTo(400);
+        assertThat(policy.resize(400, Duration.ofMillis(200))).isEqualTo(800);
+        assertThat(policy.resize(800, Duration.ofMillis(400))).isEqualTo(1000);
+    }
+
+    @Test
+    void shrinksWhenCommitsAreSlow() {
+        // arrange
+        AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(1000, 50, 5000, TARGET);
+
+        // act/assert
+        assertThat(policy.resize(1000, Duration.ofMillis(625))).isEqualTo(800);
+        assertThat(policy.resize(800, Duration.ofSeconds(10))).isEqualTo(400);
+    }
+
+    @Test
+    void staysWithinBounds() {
+        // arrange
+        AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(80, 50, 150, TARGET);
+
+        // act/assert
+        assertThat(policy.resize(80, Duration.ofSeconds(5))).isEqualTo(50);
+        assertThat(policy.resize(50, Duration.ofMillis(1))).isEqualTo(100);
+        assertThat(policy.resize(100, Duration.ofMillis(1))).isEqualTo(150);
+    }
+
+    @Test
+    void completesChunkAtCurrentSize() {
+        // arrange
+        AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(50, 50, 5000, TARGET);
+        policy.resize(50, Duration.ofMillis(1));
+
+        // act
+        RepeatContext context = policy.start(null);
+        for (int i = 0; i < 99; i++) {
+            policy.update(context);
+        }
+
+        // assert
+        assertThat(policy.isComplete(context)).isFalse();
+        policy.update(context);
+        assertThat(policy.isComplete(context)).isTrue();
+    }
+
+    @Test
+    void recordsChunkSizeInExecutionContext() {
+        // arrange
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.getExecutionContext().putInt(AdaptiveChunkCompletionPolicy.CHUNK_SIZE_KEY, 300);
+        AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(100, 50, 5000, TARGET);
+
+        // act: a restarted step continues from the recorded size, a failed chunk halves it
+        policy.beforeStep(stepExecution);
+        policy.beforeWrite(new Chunk<>(List.of("a")));
+        policy.afterChunkError(new ChunkContext(new StepContext(stepExecution)));
+        policy.afterChunk(new ChunkContext(new StepContext(stepExecution)));
+
+        // assert
+        assertThat(policy.getChunkSize()).isEqualTo(150);
+        assertThat(stepExecution.getExecutionContext().getInt(AdaptiveChunkCompletionPolicy.CHUNK_SIZE_KEY)).isEqualTo(150);
+    }
+}
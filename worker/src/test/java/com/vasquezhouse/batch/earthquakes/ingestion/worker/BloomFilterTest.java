@@ -0,0 +1,43 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+    @Test
+    void containsEveryValuePut() {
+        // arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        // act
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("ci" + i);
+        }
+
+        // assert
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("ci" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheConfiguredRate() {
+        // arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("ci" + i);
+        }
+
+        // act
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("us" + i)) falsePositives++;
+        }
+
+        // assert
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,109 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.FencedItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.FencedItemWriter.PartitionFencedException;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers
+public class FencedItemWriterTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private final List<String> written = new ArrayList<>();
+    private FencedItemWriter<String> writer;
+    private JobExecution jobExecution;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        DataSource dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        new JdbcTemplate(dataSource).execute("TRUNCATE TABLE partition_fences");
+        writer = new FencedItemWriter<>(chunk -> written.addAll(chunk.getItems()), dataSource,
+            new DataSourceTransactionManager(dataSource));
+        jobExecution = MetaDataInstanceFactory.createJobExecution();
+    }
+
+    @Test
+    void rejectsWritesOfTheAttemptThatWasReplaced() throws Exception {
+        // arrange
+        StepExecution straggler = attempt(1L, 0);
+        StepExecution speculative = attempt(2L, 1);
+        write(straggler, "first");
+
+        // act
+        write(speculative, "second");
+
+        // assert
+        assertThatThrownBy(() -> write(straggler, "late")).isInstanceOf(PartitionFencedException.class);
+        assertThat(written).containsExactly("first", "second");
+    }
+
+    @Test
+    void rejectsWritesOnceThePartitionCompleted() throws Exception {
+        // arrange: the speculative attempt was published but the straggler finished first
+        StepExecution straggler = attempt(1L, 0);
+        StepExecution speculative = attempt(2L, 1);
+        write(straggler, "first");
+        straggler.setStatus(BatchStatus.COMPLETED);
+
+        // act
+        writer.afterStep(straggler);
+
+        // assert
+        assertThatThrownBy(() -> write(speculative, "late")).isInstanceOf(PartitionFencedException.class);
+        assertThat(written).containsExactly("first");
+    }
+
+    private StepExecution attempt(long stepExecutionId, int token) {
+        StepExecution stepExecution = new StepExecution("workerStep:partition0", jobExecution, stepExecutionId);
+        stepExecution.getExecutionContext().putInt(FencedItemWriter.FENCING_TOKEN_KEY, token);
+        return stepExecution;
+    }
+
+    // chunks are written on the thread of their step execution
+    private void write(StepExecution stepExecution, String item) throws Exception {
+        StepSynchronizationManager.register(stepExecution);
+        try {
+            writer.write(Chunk.of(item));
+        } finally {
+            StepSynchronizationManager.close();
+        }
+    }
+}
@@ -8,10 +8,16 @@ import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
 import org.junit.jupiter.api.Test;
 import org.springframework.batch.item.support.CompositeItemProcessor;
+import org.springframework.batch.item.validator.ValidatingItemProcessor;
 import org.springframework.batch.item.validator.ValidationException;
+import org.springframework.validation.BindException;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -34,6 +40,8 @@ public class ItemProcessorTest {
         usgsEarthquake.setMmi(BigDecimal.valueOf(3.2));
         usgsEarthquake.setAlertLevel("green");
         usgsEarthquake.setSourceId("abc123");
+        usgsEarthquake.setEventId("ci37389218");
+        usgsEarthquake.setUpdated(1648771500000L);
         
         CompositeItemProcessor<UsgsEarthquake, AnalyticsEarthquake> processor = createItemProcessor();
 
@@ -56,6 +64,8 @@ public class ItemProcessorTest {
         assertThat(analyticsEarthquake.mmi()).isEqualTo(BigDecimal.valueOf(3.2));
         assertThat(analyticsEarthquake.alertLevel()).isEqualTo(AlertLevel.Green);
         assertThat(analyticsEarthquake.sourceId()).isEqualTo("abc123");
+        assertThat(analyticsEarthquake.eventId()).isEqualTo("ci37389218");
+        assertThat(analyticsEarthquake.sourceUpdatedAt()).isEqualTo(Instant.ofEpochMilli(1648771500000L));
     }
 
     @Test
@@ -84,8 +94,61 @@ public class ItemProcessorTest {
             .hasMessageContaining("Field error in object 'item' on field 'magnitude': rejected value [-20]");
     }
     
+    @Test
+    void fastValidationMatchesBeanValidation() {
+        // arrange
+        ItemProcessorConfig config = new ItemProcessorConfig();
+        ValidatingItemProcessor<UsgsEarthquake> fastProcessor = config.validatingItemProcessor();
+        ValidatingItemProcessor<UsgsEarthquake> beanProcessor = config.beanValidatingItemProcessor();
+
+        List<Consumer<UsgsEarthquake>> invalidations = List.of(
+            earthquake -> earthquake.setTime(null),
+            earthquake -> earthquake.setTime(-1L),
+            earthquake -> earthquake.setTime(253402300800000L),
+            earthquake -> earthquake.setMagnitude(BigDecimal.valueOf(-2.1)),
+            earthquake -> earthquake.setMagnitude(BigDecimal.valueOf(10.1)),
+            earthquake -> earthquake.setPlace(" "),
+            earthquake -> earthquake.setTsunami(null),
+            earthquake -> earthquake.setSignificance(3001),
+            earthquake -> earthquake.setMagType("mx"),
+            earthquake -> earthquake.setEventType(""),
+            earthquake -> earthquake.setEventType("Earthquake"),
+            earthquake -> earthquake.setFeltReports(-1.0),
+            earthquake -> earthquake.setCdi(BigDecimal.valueOf(12.1)),
+            earthquake -> earthquake.setMmi(BigDecimal.valueOf(-0.1)),
+            earthquake -> earthquake.setAlertLevel("purple"),
+            earthquake -> earthquake.setSourceId(null),
+            earthquake -> {
+                earthquake.setMagType("");
+                earthquake.setAlertLevel("");
+                earthquake.setEventType(null);
+            }
+        );
+
+        for (Consumer<UsgsEarthquake> invalidation : invalidations) {
+            UsgsEarthquake earthquake = getValidData();
+            invalidation.accept(earthquake);
+
+            // act/assert
+            assertThat(fieldErrors(fastProcessor, earthquake)).isEqualTo(fieldErrors(beanProcessor, earthquake));
+        }
+    }
+
     // add many more tests to cover all validations and transformations....
 
+    // field and message of every violation, empty when the item is valid
+    private static Set<String> fieldErrors(ValidatingItemProcessor<UsgsEarthquake> processor, UsgsEarthquake earthquake) {
+        try {
+            processor.process(earthquake);
+            return Set.of();
+        } catch (ValidationException e) {
+            BindException bindException = (BindException) e.getCause();
+            return bindException.getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .collect(Collectors.toSet());
+        }
+    }
+
     private static CompositeItemProcessor<UsgsEarthquake, AnalyticsEarthquake> createItemProcessor() {
         return new ItemProcessorConfig().compositeItemProcessor();
     }
@@ -2,16 +2,22 @@ package com.vasquezhouse.batch.earthquakes.ingestion.worker;
 
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemReaderConfig;
 import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import io.airlift.compress.zstd.ZstdOutputStream;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.file.FlatFileItemReader;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -53,6 +59,80 @@ public class ItemReaderTest {
         // add remaining properties to check
     }
 
+    @SneakyThrows
+    @Test
+    void mapsColumnsByPosition() {
+        // arrange
+        String csvContent = """
+            alert,cdi,code,detail,dmin,felt,gap,ids,mag,magType,mmi,net,nst,place,rms,sig,sources,status,time,title,tsunami,type,types,tz,updated,url
+            green,4.4,37389194,https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=ci37389194&format=geojson,0.02137,28.0,21.0,",ci37389194,",3.42,ml,3.1,ci,111.0,"8km NE of Aguanga, CA",0.22,192,",ci,",automatic,1539475062610,"M 3.4 - 8km NE of Aguanga, CA",1,earthquake,",dyfi,focal-mechanism,geoserve,nearby-cities,origin,phase-data,",-480.0,1539536756176,https://earthquake.usgs.gov/earthquakes/eventpage/ci37389194
+            """;
+
+        FlatFileItemReader<UsgsEarthquake> itemReader = createItemReader(csvContent);
+
+        // act
+        UsgsEarthquake earthquake = itemReader.read();
+        itemReader.close();
+
+        // assert
+        assertThat(earthquake).isNotNull();
+        assertThat(earthquake.getAlertLevel()).isEqualTo("green");
+        assertThat(earthquake.getCdi()).isEqualTo(new BigDecimal("4.4"));
+        assertThat(earthquake.getFeltReports()).isEqualTo(28.0);
+        assertThat(earthquake.getMagnitude()).isEqualTo(new BigDecimal("3.42"));
+        assertThat(earthquake.getMagType()).isEqualTo("ml");
+        assertThat(earthquake.getMmi()).isEqualTo(new BigDecimal("3.1"));
+        assertThat(earthquake.getPlace()).isEqualTo("8km NE of Aguanga, CA");
+        assertThat(earthquake.getSignificance()).isEqualTo(192);
+        assertThat(earthquake.getSourceId()).isEqualTo(",ci,");
+        assertThat(earthquake.getTime()).isEqualTo(1539475062610L);
+        assertThat(earthquake.getTsunami()).isTrue();
+        assertThat(earthquake.getEventType()).isEqualTo("earthquake");
+        assertThat(earthquake.getEventId()).isEqualTo("ci37389194");
+        assertThat(earthquake.getUpdated()).isEqualTo(1539536756176L);
+    }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @ValueSource(strings = {"gz", "zst"})
+    void readsCompressedFilesAndRestartsFromRecordCount(String extension) {
+        // arrange
+        String csvContent = """
+            alert,cdi,code,detail,dmin,felt,gap,ids,mag,magType,mmi,net,nst,place,rms,sig,sources,status,time,title,tsunami,type,types,tz,updated,url
+            ,,37389218,https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=ci37389218&format=geojson,0.008693,,85.0,",ci37389218,",1.35,ml,,ci,26.0,"9km NE of Aguanga, CA",0.19,28,",ci,",automatic,1539475168010,"M 1.4 - 9km NE of Aguanga, CA",0,earthquake,",geoserve,nearby-cities,origin,phase-data,",-480.0,1539475395144,https://earthquake.usgs.gov/earthquakes/eventpage/ci37389218
+            ,4.4,37389194,https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=ci37389194&format=geojson,0.02137,28.0,21.0,",ci37389194,",3.42,ml,,ci,111.0,"8km NE of Aguanga, CA",0.22,192,",ci,",automatic,1539475062610,"M 3.4 - 8km NE of Aguanga, CA",0,earthquake,",dyfi,focal-mechanism,geoserve,nearby-cities,origin,phase-data,",-480.0,1539536756176,https://earthquake.usgs.gov/earthquakes/eventpage/ci37389194
+            """;
+
+        Path file = tempDir.resolve("test-earthquakes.csv." + extension);
+        try (OutputStream out = compress(Files.newOutputStream(file), extension)) {
+            out.write(csvContent.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ExecutionContext executionContext = new ExecutionContext();
+        FlatFileItemReader<UsgsEarthquake> itemReader = new ItemReaderConfig().itemReader(file.toString(), null, null);
+        itemReader.open(executionContext);
+        UsgsEarthquake firstEarthquake = itemReader.read();
+        itemReader.update(executionContext);
+        itemReader.close();
+
+        // act: a restarted reader skips the records read before the failure
+        FlatFileItemReader<UsgsEarthquake> restartedReader = new ItemReaderConfig().itemReader(file.toString(), null, null);
+        restartedReader.open(executionContext);
+        UsgsEarthquake secondEarthquake = restartedReader.read();
+
+        // assert
+        assertThat(restartedReader.read()).isNull();
+        restartedReader.close();
+
+        assertThat(firstEarthquake.getEventId()).isEqualTo("ci37389218");
+        assertThat(secondEarthquake.getEventId()).isEqualTo("ci37389194");
+        assertThat(secondEarthquake.getLineNumber()).isEqualTo(3);
+    }
+
+    private static OutputStream compress(OutputStream out, String extension) throws IOException {
+        return "gz".equals(extension) ? new GZIPOutputStream(out) : new ZstdOutputStream(out);
+    }
+
     private FlatFileItemReader<UsgsEarthquake> createItemReader(String csvContent) {
 
         String testFilePath = tempDir.resolve("test-earthquakes.csv").toString();
@@ -62,7 +142,7 @@ public class ItemReaderTest {
             throw new RuntimeException(e);
         }
 
-        FlatFileItemReader<UsgsEarthquake> itemReader = new ItemReaderConfig().itemReader(testFilePath);
+        FlatFileItemReader<UsgsEarthquake> itemReader = new ItemReaderConfig().itemReader(testFilePath, null, null);
         itemReader.open(new ExecutionContext());
         return itemReader;
     }
@@ -0,0 +1,141 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemWriterConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AlertLevel;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the JDBC batch insert writer against the COPY writer. Disabled by default, run it with:
+ * <pre>
+ * ./mvnw test -Dtest=ItemWriterBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@Slf4j
+@Testcontainers
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ItemWriterBenchmarkTest {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int CHUNKS = 200;
+    private static final int WARMUP_CHUNKS = 20;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    @Test
+    void comparesWriters() throws Exception {
+        DataSource dataSource = createDataSource();
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        JdbcBatchItemWriter<AnalyticsEarthquake> jdbcWriter = new ItemWriterConfig().itemWriter(dataSource);
+        jdbcWriter.afterPropertiesSet();
+        ItemWriter<AnalyticsEarthquake> copyWriter = new ItemWriterConfig().copyItemWriter(dataSource);
+
+        Chunk<AnalyticsEarthquake> chunk = createChunk();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        long jdbcNanos = measure(jdbcWriter, chunk, transactionTemplate, jdbcTemplate);
+        long copyNanos = measure(copyWriter, chunk, transactionTemplate, jdbcTemplate);
+
+        long rows = (long) CHUNK_SIZE * CHUNKS;
+        log.info(" >>> jdbc batch insert: {} rows in {} ms ({} rows/s)", rows, jdbcNanos / 1_000_000, rows * 1_000_000_000L / jdbcNanos);
+        log.info(" >>> copy:              {} rows in {} ms ({} rows/s)", rows, copyNanos / 1_000_000, rows * 1_000_000_000L / copyNanos);
+    }
+
+    // every chunk is written in its own transaction, as the step does
+    private static long measure(ItemWriter<AnalyticsEarthquake> writer,
+                                Chunk<AnalyticsEarthquake> chunk,
+                                TransactionTemplate transactionTemplate,
+                                JdbcTemplate jdbcTemplate) {
+        for (int i = 0; i < WARMUP_CHUNKS; i++) {
+            write(writer, chunk, transactionTemplate);
+        }
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CHUNKS; i++) {
+            write(writer, chunk, transactionTemplate);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+        return elapsed;
+    }
+
+    private static void write(ItemWriter<AnalyticsEarthquake> writer,
+                              Chunk<AnalyticsEarthquake> chunk,
+                              TransactionTemplate transactionTemplate) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                writer.write(chunk);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static Chunk<AnalyticsEarthquake> createChunk() {
+        List<AnalyticsEarthquake> earthquakes = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            earthquakes.add(new AnalyticsEarthquake(
+                Instant.ofEpochMilli(1539475168010L + i),
+                BigDecimal.valueOf(i % 90, 1),
+                "9km NE of Aguanga, CA",
+                "CA",
+                "US",
+                i % 50 == 0,
+                i % 1000,
+                MagnitudeType.ml,
+                EventType.Earthquake,
+                i % 20,
+                BigDecimal.valueOf(4.4),
+                null,
+                i % 10 == 0 ? AlertLevel.Green : null,
+                "ci" + i,
+                null, // the same chunk is written repeatedly, no event id keeps the rows from conflicting
+                null
+            ));
+        }
+        return new Chunk<>(earthquakes);
+    }
+
+    private static DataSource createDataSource() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName(postgres.getDriverClassName());
+        dataSource.setUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        return dataSource;
+    }
+}
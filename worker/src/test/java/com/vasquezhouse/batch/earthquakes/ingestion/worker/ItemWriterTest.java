@@ -11,8 +11,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -23,6 +25,9 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -53,7 +58,9 @@ public class ItemWriterTest {
                 BigDecimal.valueOf(7.5),
                 BigDecimal.valueOf(7.8),
                 AlertLevel.Orange,
-                "nc12345"
+                "nc12345",
+                "nc12345",
+                Instant.now()
             ),
             new AnalyticsEarthquake(
                 Instant.now(),
@@ -69,7 +76,9 @@ public class ItemWriterTest {
                 BigDecimal.valueOf(6.0),
                 BigDecimal.valueOf(6.5),
                 AlertLevel.Yellow,
-                "us12345"
+                "us12345",
+                "us12345",
+                Instant.now()
             )
         );
 
@@ -126,6 +135,104 @@ public class ItemWriterTest {
         assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isZero();
     }
 
+    @Test
+    void storesEventsMovedToAnotherTimeAsAnotherRow() throws Exception {
+        // arrange: a later USGS revision moved the stored event by a few seconds, only upsert and staging delete the older
+        Instant time = Instant.parse("2018-10-13T23:59:28.010Z");
+        Instant revisedTime = time.plusSeconds(3);
+        DataSource dataSource = createDataSource();
+        createAnalyticsTablesInDatabase(dataSource);
+        JdbcBatchItemWriter<AnalyticsEarthquake> writer = createWriter(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        writer.write(new Chunk<>(List.of(earthquake(time, BigDecimal.valueOf(4.1), time))));
+
+        // act
+        writer.write(new Chunk<>(List.of(
+            earthquake(time, BigDecimal.valueOf(4.1), time),
+            earthquake(revisedTime, BigDecimal.valueOf(4.3), revisedTime)
+        )));
+
+        // assert
+        assertThat(jdbcTemplate.queryForList("SELECT time FROM earthquakes WHERE event_id = 'ci37389218' ORDER BY time", Instant.class))
+            .containsExactly(time, revisedTime);
+    }
+
+    @Test
+    void concurrentWritersStoreTheSameEventOnce() throws Exception {
+        // arrange: two workers write the same event, the second one while the first hasn't committed yet
+        Instant time = Instant.parse("2018-10-13T23:59:28.010Z");
+        DataSource dataSource = createDataSource();
+        createAnalyticsTablesInDatabase(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        Chunk<AnalyticsEarthquake> chunk = new Chunk<>(List.of(earthquake(time, BigDecimal.valueOf(4.1), time)));
+        CountDownLatch firstWrote = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+
+        // act
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            write(createWriter(dataSource), chunk);
+            firstWrote.countDown();
+            await(commitFirst);
+        }));
+        assertThat(firstWrote.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status ->
+            write(createWriter(dataSource), chunk)));
+        awaitLockWait(jdbcTemplate);
+        commitFirst.countDown();
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(1);
+    }
+
+    // the second writer waits on the unique index entry of the first one's uncommitted row
+    private static void awaitLockWait(JdbcTemplate jdbcTemplate) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class) == 0) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static void write(JdbcBatchItemWriter<AnalyticsEarthquake> writer, Chunk<AnalyticsEarthquake> chunk) {
+        try {
+            writer.write(chunk);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static AnalyticsEarthquake earthquake(Instant time, BigDecimal magnitude, Instant sourceUpdatedAt) {
+        return new AnalyticsEarthquake(
+            time,
+            magnitude,
+            "9km NE of Aguanga, CA",
+            "CA",
+            "US",
+            false,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            "ci",
+            "ci37389218",
+            sourceUpdatedAt
+        );
+    }
+
     private static JdbcBatchItemWriter<AnalyticsEarthquake> createWriter(DataSource dataSource) {
         JdbcBatchItemWriter<AnalyticsEarthquake> writer = new ItemWriterConfig().itemWriter(dataSource);
         writer.afterPropertiesSet();
@@ -139,6 +246,9 @@ public class ItemWriterTest {
             .locations("classpath:db/migration/analytics")
             .load()
             .migrate();
+
+        // the tests share the container
+        new JdbcTemplate(dataSource).execute("TRUNCATE TABLE earthquakes");
     }
 
     private static @NotNull DriverManagerDataSource createDataSource() {
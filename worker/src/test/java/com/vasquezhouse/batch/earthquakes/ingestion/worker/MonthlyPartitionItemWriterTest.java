@@ -0,0 +1,129 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemWriterConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.MonthlyPartitionItemWriter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class MonthlyPartitionItemWriterTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ItemWriter<AnalyticsEarthquake> jdbcWriter;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+        jdbcWriter = new ItemWriterConfig().itemWriter(dataSource);
+    }
+
+    @Test
+    void createsThePartitionsOfTheChunkBeforeWritingIt() throws Exception {
+        // arrange
+        MonthlyPartitionItemWriter writer = new MonthlyPartitionItemWriter(jdbcWriter, dataSource,
+            new DataSourceTransactionManager(dataSource));
+
+        // act: the last one is in november in UTC, still october in California
+        writer.write(Chunk.of(
+            earthquake("ci1", "2018-10-01T00:00:00Z"),
+            earthquake("ci2", "2018-10-31T23:59:59Z"),
+            earthquake("ci3", "2018-11-01T03:00:00Z")
+        ));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_2018_10")).isEqualTo(2);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_2018_11")).isEqualTo(1);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_default")).isZero();
+    }
+
+    @Test
+    void movesRowsOutOfTheDefaultPartition() throws Exception {
+        // arrange: written without creating the partition first
+        jdbcWriter.write(Chunk.of(earthquake("ci4", "2019-03-15T12:00:00Z")));
+
+        // act
+        jdbcTemplate.queryForObject("SELECT create_earthquakes_partition('2019-03-01T00:00:00Z')", String.class);
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_default")).isZero();
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_2019_03")).isEqualTo(1);
+    }
+
+    @Test
+    void dropsWholeMonthsBeforeTheCutoff() throws Exception {
+        // arrange
+        new MonthlyPartitionItemWriter(jdbcWriter, dataSource, new DataSourceTransactionManager(dataSource)).write(Chunk.of(
+            earthquake("ci5", "2017-01-10T00:00:00Z"),
+            earthquake("ci6", "2017-02-10T00:00:00Z")
+        ));
+
+        // act
+        jdbcTemplate.queryForList("SELECT drop_earthquakes_partitions_before('2017-02-15T00:00:00Z')", String.class);
+
+        // assert
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('earthquakes_2017_01')", String.class)).isNull();
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(1);
+    }
+
+    @Test
+    void recreatesPartitionsDroppedBetweenChunks() throws Exception {
+        // arrange
+        MonthlyPartitionItemWriter writer = new MonthlyPartitionItemWriter(jdbcWriter, dataSource,
+            new DataSourceTransactionManager(dataSource));
+        writer.write(Chunk.of(earthquake("ci7", "2016-05-10T00:00:00Z")));
+        jdbcTemplate.queryForList("SELECT drop_earthquakes_partitions_before('2016-06-01T00:00:00Z')", String.class);
+
+        // act
+        writer.write(Chunk.of(earthquake("ci8", "2016-05-20T00:00:00Z")));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_2016_05")).isEqualTo(1);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes_default")).isZero();
+    }
+
+    private static AnalyticsEarthquake earthquake(String eventId, String time) {
+        return new AnalyticsEarthquake(Instant.parse(time), BigDecimal.valueOf(2.1), "9km NE of Aguanga, CA", "CA", "US",
+            false, 70, MagnitudeType.ml, EventType.Earthquake, 0, null, null, null, ",ci,", eventId, Instant.parse(time));
+    }
+}
@@ -0,0 +1,107 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemReaderConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.MultiFileRangeItemReader;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiFileRangeItemReaderTest {
+
+    private static final String HEADER = "alert,cdi,code,detail,dmin,felt,gap,ids,mag,magType,mmi,net,nst,place,rms,sig,sources,status,time,title,tsunami,type,types,tz,updated,url\n";
+
+    @TempDir
+    Path tempDir;
+
+    @SneakyThrows
+    @Test
+    void readsAllFileRangesOfPartition() {
+        // arrange
+        String file1 = writeFile("earthquakes-1.csv", HEADER + line(1) + line(2));
+        String file2 = writeFile("earthquakes-2.csv", HEADER + line(3) + line(4) + line(5));
+        long file2Split = (HEADER + line(3)).length();
+
+        Map<String, Object> partition = new HashMap<>();
+        partition.put("fileCount", 3);
+        addRange(partition, 0, file1, 0, Files.size(Path.of(file1)));
+        addRange(partition, 1, file2, 0, file2Split);
+        addRange(partition, 2, file2, file2Split, Files.size(Path.of(file2)));
+
+        MultiFileRangeItemReader<UsgsEarthquake> reader = new ItemReaderConfig().partitionItemReader(partition);
+        reader.open(new ExecutionContext());
+
+        // act
+        List<Long> times = readTimes(reader);
+
+        // assert
+        assertThat(times).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @SneakyThrows
+    @Test
+    void restartsInTheSameFileRange() {
+        // arrange
+        String file1 = writeFile("earthquakes-1.csv", HEADER + line(1) + line(2));
+        String file2 = writeFile("earthquakes-2.csv", HEADER + line(3) + line(4) + line(5));
+
+        Map<String, Object> partition = new HashMap<>();
+        partition.put("fileCount", 2);
+        addRange(partition, 0, file1, 0, Files.size(Path.of(file1)));
+        addRange(partition, 1, file2, 0, Files.size(Path.of(file2)));
+
+        ExecutionContext executionContext = new ExecutionContext();
+        MultiFileRangeItemReader<UsgsEarthquake> reader = new ItemReaderConfig().partitionItemReader(partition);
+        reader.open(executionContext);
+        for (int i = 0; i < 4; i++) {
+            reader.read();
+        }
+        reader.update(executionContext);
+        reader.close();
+
+        // act
+        MultiFileRangeItemReader<UsgsEarthquake> restartedReader = new ItemReaderConfig().partitionItemReader(partition);
+        restartedReader.open(executionContext);
+        List<Long> times = readTimes(restartedReader);
+
+        // assert
+        assertThat(times).containsExactly(5L);
+    }
+
+    private static String line(long time) {
+        return ",,code,detail,0.01,,85.0,\",ci1,\",1.35,ml,,ci,26.0,\"9km NE of Aguanga, CA\",0.19,28,\",ci,\",automatic," + time +
+            ",\"M 1.4 - 9km NE of Aguanga, CA\",0,earthquake,\",origin,\",-480.0,1539475395144,url\n";
+    }
+
+    private static void addRange(Map<String, Object> partition, int index, String filename, long start, long end) {
+        partition.put("filename." + index, filename);
+        partition.put("startOffset." + index, start);
+        partition.put("endOffset." + index, end);
+    }
+
+    private String writeFile(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file.toString();
+    }
+
+    private static List<Long> readTimes(MultiFileRangeItemReader<UsgsEarthquake> reader) throws Exception {
+        List<Long> times = new ArrayList<>();
+        UsgsEarthquake earthquake;
+        while ((earthquake = reader.read()) != null) {
+            times.add(earthquake.getTime());
+        }
+        reader.close();
+        return times;
+    }
+}
@@ -0,0 +1,59 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.processor.PlaceResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlaceResolverTest {
+
+    @Test
+    void resolvesStateAndCountry() {
+        // arrange
+        PlaceResolver resolver = new PlaceResolver();
+
+        // act/assert
+        assertThat(resolver.resolve("9km NE of Aguanga, CA")).isEqualTo(new PlaceResolver.Location("CA", "US"));
+        assertThat(resolver.resolve("14km NE of East Quincy, california ")).isEqualTo(new PlaceResolver.Location("CA", "US"));
+        assertThat(resolver.resolve("105km NNW of San Antonio, Puerto Rico")).isEqualTo(new PlaceResolver.Location(null, "Puerto Rico"));
+        assertThat(resolver.resolve("South Sandwich Islands region")).isEqualTo(new PlaceResolver.Location(null, "South Sandwich Islands region"));
+        assertThat(resolver.resolve("somewhere,")).isEqualTo(new PlaceResolver.Location(null, ""));
+        assertThat(resolver.resolve(null)).isEqualTo(new PlaceResolver.Location(null, null));
+    }
+
+    @Test
+    void reusesResolvedSuffixes() {
+        // arrange
+        PlaceResolver resolver = new PlaceResolver();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        resolver.bindTo(registry);
+
+        // act
+        PlaceResolver.Location first = resolver.resolve("213km SE of Hachijo-jima, Japan");
+        PlaceResolver.Location second = resolver.resolve("40km S of Kainan, Japan");
+
+        // assert
+        assertThat(second).isSameAs(first);
+        assertThat(second.country()).isSameAs("Japan");
+        assertThat(resolver.hitRate()).isEqualTo(0.5);
+        assertThat(registry.get("place.resolver.cache.hits").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("place.resolver.cache.misses").functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("place.resolver.cache.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void stopsCachingWhenFull() {
+        // arrange
+        PlaceResolver resolver = new PlaceResolver(1);
+        resolver.resolve("somewhere, Japan");
+
+        // act
+        PlaceResolver.Location location = resolver.resolve("somewhere, Chile");
+        resolver.resolve("somewhere, Chile");
+
+        // assert
+        assertThat(location).isEqualTo(new PlaceResolver.Location(null, "Chile"));
+        assertThat(resolver.hitRate()).isEqualTo(0.0);
+    }
+}
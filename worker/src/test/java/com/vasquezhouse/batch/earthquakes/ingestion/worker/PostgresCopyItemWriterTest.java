@@ -0,0 +1,186 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemWriterConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AlertLevel;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.PostgresCopyItemWriter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class PostgresCopyItemWriterTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+    }
+
+    @Test
+    void writesToDatabase() throws Exception {
+        // arrange
+        Instant time = Instant.parse("2018-10-13T23:59:28.010Z");
+        List<AnalyticsEarthquake> earthquakes = List.of(
+            new AnalyticsEarthquake(
+                time,
+                BigDecimal.valueOf(7.2),
+                "9km NE of Aguanga, CA",
+                "CA",
+                "US",
+                true,
+                800,
+                MagnitudeType.mb,
+                EventType.Earthquake,
+                150,
+                BigDecimal.valueOf(7.5),
+                BigDecimal.valueOf(7.8),
+                AlertLevel.Orange,
+                "nc12345",
+                "nc12345",
+                time
+            ),
+            new AnalyticsEarthquake(
+                time,
+                null,
+                "tab\there, back\\slash and\nnew line",
+                null,
+                "Japan",
+                false,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                "us12345",
+                "us12345",
+                null
+            )
+        );
+
+        PostgresCopyItemWriter writer = new ItemWriterConfig().copyItemWriter(dataSource);
+
+        // act
+        writer.write(new Chunk<>(earthquakes));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(2);
+
+        List<Map<String, Object>> results = jdbcTemplate.queryForList("SELECT * FROM earthquakes ORDER BY id");
+
+        Map<String, Object> firstEarthquake = results.get(0);
+        assertThat(jdbcTemplate.queryForObject("SELECT time FROM earthquakes WHERE source_id = 'nc12345'", Instant.class))
+            .isEqualTo(time);
+        assertThat(firstEarthquake.get("magnitude")).isEqualTo(BigDecimal.valueOf(7.2));
+        assertThat(firstEarthquake.get("place")).isEqualTo("9km NE of Aguanga, CA");
+        assertThat(firstEarthquake.get("state")).isEqualTo("CA");
+        assertThat(firstEarthquake.get("tsunami")).isEqualTo(true);
+        assertThat(firstEarthquake.get("mag_type")).isEqualTo("mb");
+        assertThat(firstEarthquake.get("event_type")).isEqualTo("Earthquake");
+        assertThat(firstEarthquake.get("felt_reports")).isEqualTo(150);
+        assertThat(firstEarthquake.get("alert_level")).isEqualTo("Orange");
+
+        Map<String, Object> secondEarthquake = results.get(1);
+        assertThat(secondEarthquake.get("magnitude")).isNull();
+        assertThat(secondEarthquake.get("place")).isEqualTo("tab\there, back\\slash and\nnew line");
+        assertThat(secondEarthquake.get("state")).isNull();
+        assertThat(secondEarthquake.get("tsunami")).isEqualTo(false);
+        assertThat(secondEarthquake.get("mag_type")).isNull();
+        assertThat(secondEarthquake.get("alert_level")).isNull();
+    }
+
+    @Test
+    void storesAReplayedChunkOnce() throws Exception {
+        // arrange: the chunk was copied, then its batch commit failed
+        Instant time = Instant.parse("2018-10-13T23:59:28.010Z");
+        List<AnalyticsEarthquake> earthquakes = List.of(
+            earthquake(time, "nc12345"),
+            earthquake(time.plusSeconds(60), null)
+        );
+        PostgresCopyItemWriter writer = new ItemWriterConfig().copyItemWriter(dataSource);
+        writer.write(new Chunk<>(earthquakes));
+
+        // act: the restarted partition writes it again
+        writer.write(new Chunk<>(earthquakes));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM earthquakes WHERE event_id IS NULL", Integer.class))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void handlesEmptyBatch() throws Exception {
+        // arrange
+        PostgresCopyItemWriter writer = new ItemWriterConfig().copyItemWriter(dataSource);
+
+        // act
+        writer.write(new Chunk<>(List.of()));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isZero();
+    }
+
+    private static AnalyticsEarthquake earthquake(Instant time, String eventId) {
+        return new AnalyticsEarthquake(
+            time,
+            BigDecimal.valueOf(4.1),
+            "9km NE of Aguanga, CA",
+            "CA",
+            "US",
+            false,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            "nc12345",
+            eventId,
+            time
+        );
+    }
+}
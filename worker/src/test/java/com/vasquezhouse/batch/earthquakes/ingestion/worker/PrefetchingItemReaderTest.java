@@ -0,0 +1,114 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemReaderConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.PrefetchingItemReader;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PrefetchingItemReaderTest {
+
+    private static final String HEADER = "alert,cdi,code,detail,dmin,felt,gap,ids,mag,magType,mmi,net,nst,place,rms,sig,sources,status,time,title,tsunami,type,types,tz,updated,url\n";
+
+    @TempDir
+    Path tempDir;
+
+    @SneakyThrows
+    @Test
+    void restartsAfterTheLastItemTakenNotTheLastItemReadAhead() {
+        // arrange
+        Map<String, Object> partition = partition(
+            writeFile("earthquakes-1.csv", HEADER + line(1) + line(2) + line(3) + line(4)),
+            writeFile("earthquakes-2.csv", HEADER + line(5) + line(6) + line(7) + line(8) + line(9) + line(10))
+        );
+
+        ExecutionContext executionContext = new ExecutionContext();
+        PrefetchingItemReader<UsgsEarthquake> reader = createReader(partition);
+        reader.open(executionContext);
+        List<Long> firstRun = read(reader, 6);
+        reader.update(executionContext);
+        reader.close();
+
+        // act: the second run restarts between two checkpoints, the third one from the restarted state
+        PrefetchingItemReader<UsgsEarthquake> restartedReader = createReader(partition);
+        restartedReader.open(executionContext);
+        List<Long> secondRun = read(restartedReader, 1);
+        restartedReader.update(executionContext);
+        restartedReader.close();
+
+        PrefetchingItemReader<UsgsEarthquake> restartedAgainReader = createReader(partition);
+        restartedAgainReader.open(executionContext);
+        List<Long> thirdRun = read(restartedAgainReader, Integer.MAX_VALUE);
+
+        // assert
+        assertThat(firstRun).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(secondRun).containsExactly(7L);
+        assertThat(thirdRun).containsExactly(8L, 9L, 10L);
+    }
+
+    @SneakyThrows
+    @Test
+    void failsReadsInOrder() {
+        // arrange
+        Map<String, Object> partition = partition(
+            writeFile("earthquakes-1.csv", HEADER + line(1) + ",,broken\n" + line(3))
+        );
+
+        PrefetchingItemReader<UsgsEarthquake> reader = createReader(partition);
+        reader.open(new ExecutionContext());
+
+        // act/assert: the step can skip the failed line and go on, as with the reader it wraps
+        assertThat(reader.read().getTime()).isEqualTo(1L);
+        assertThatThrownBy(reader::read).isInstanceOf(FlatFileParseException.class);
+        assertThat(reader.read().getTime()).isEqualTo(3L);
+        assertThat(reader.read()).isNull();
+        reader.close();
+    }
+
+    // small buffer and checkpoint interval, so the reading thread blocks and restarts fall between checkpoints
+    private static PrefetchingItemReader<UsgsEarthquake> createReader(Map<String, Object> partition) {
+        return new PrefetchingItemReader<>(new ItemReaderConfig().partitionItemReader(partition), 2, 4);
+    }
+
+    private static Map<String, Object> partition(String... filenames) {
+        Map<String, Object> partition = new HashMap<>();
+        partition.put("fileCount", filenames.length);
+        for (int i = 0; i < filenames.length; i++) {
+            partition.put("filename." + i, filenames[i]);
+        }
+        return partition;
+    }
+
+    private static String line(long time) {
+        return ",,code,detail,0.01,,85.0,\",ci1,\",1.35,ml,,ci,26.0,\"9km NE of Aguanga, CA\",0.19,28,\",ci,\",automatic," + time +
+            ",\"M 1.4 - 9km NE of Aguanga, CA\",0,earthquake,\",origin,\",-480.0,1539475395144,url\n";
+    }
+
+    private String writeFile(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file.toString();
+    }
+
+    private static List<Long> read(PrefetchingItemReader<UsgsEarthquake> reader, int count) throws Exception {
+        List<Long> times = new ArrayList<>();
+        UsgsEarthquake earthquake;
+        while (times.size() < count && (earthquake = reader.read()) != null) {
+            times.add(earthquake.getTime());
+        }
+        return times;
+    }
+}
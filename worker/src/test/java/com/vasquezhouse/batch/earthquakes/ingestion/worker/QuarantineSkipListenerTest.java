@@ -0,0 +1,123 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemProcessorConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.step.QuarantineSkipListener;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.validator.ValidationException;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+@Testcontainers
+public class QuarantineSkipListenerTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE TABLE quarantined_rows");
+    }
+
+    @Test
+    void quarantinesSkippedRowsOnceTheChunkCommits() throws Exception {
+        // arrange
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.getExecutionContext().putString("filename", "earthquakes-1.csv");
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+        QuarantineSkipListener listener = new QuarantineSkipListener(dataSource, new DataSourceTransactionManager(dataSource));
+        listener.beforeStep(stepExecution);
+
+        UsgsEarthquake invalid = new UsgsEarthquake();
+        invalid.setLineNumber(7);
+        invalid.setRawLine(",,37389202,...");
+        ValidationException validationException = catchThrowableOfType(ValidationException.class,
+            () -> new ItemProcessorConfig().validatingItemProcessor().process(invalid));
+        AnalyticsEarthquake rejected = new AnalyticsEarthquake(Instant.parse("2018-10-13T23:50:00Z"), null,
+            "9km NE of Aguanga, CA", null, "US", false, 70, MagnitudeType.ml, EventType.Earthquake, 0, null, null, null,
+            ",ci,", "ci37389202", Instant.parse("2018-10-14T00:03:15.144Z"));
+
+        // act
+        listener.onSkipInRead(new FlatFileParseException("Incorrect number of fields at line: 3", ",,broken", 3));
+        listener.onSkipInProcess(invalid, validationException);
+        listener.onSkipInWrite(rejected, new IllegalArgumentException("value too long for type character varying(255)"));
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "quarantined_rows")).isZero();
+        listener.afterChunk(chunkContext);
+
+        // assert
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM quarantined_rows ORDER BY id");
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).get("source")).isEqualTo("earthquakes-1.csv");
+        assertThat(rows.get(0).get("line_number")).isEqualTo(3);
+        assertThat(rows.get(0).get("raw_line")).isEqualTo(",,broken");
+        assertThat((String) rows.get(0).get("errors")).contains("Incorrect number of fields at line: 3");
+        assertThat(rows.get(1).get("line_number")).isEqualTo(7);
+        assertThat(rows.get(1).get("raw_line")).isEqualTo(",,37389202,...");
+        assertThat((String) rows.get(1).get("errors")).contains("time: Time is required", "place: Place is required");
+        assertThat(rows.get(2).get("line_number")).isNull();
+        assertThat((String) rows.get(2).get("raw_line")).contains("ci37389202");
+        assertThat((String) rows.get(2).get("errors")).isEqualTo("value too long for type character varying(255)");
+        assertThat(stepExecution.getExecutionContext().getLong(QuarantineSkipListener.QUARANTINED_COUNT_KEY)).isEqualTo(3);
+    }
+
+    @Test
+    void dropsSkipsOfRolledBackChunks() {
+        // arrange
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+        QuarantineSkipListener listener = new QuarantineSkipListener(dataSource, new DataSourceTransactionManager(dataSource));
+        listener.beforeStep(stepExecution);
+
+        // act
+        listener.onSkipInRead(new FlatFileParseException("Incorrect number of fields at line: 3", ",,broken", 3));
+        listener.afterChunkError(chunkContext);
+        listener.afterStep(stepExecution);
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "quarantined_rows")).isZero();
+    }
+}
@@ -0,0 +1,159 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemWriterConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.MonthlyPartitionItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.RollupItemWriter;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.UpsertItemWriter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class RollupItemWriterTest {
+
+    private static final Instant UPDATED = Instant.parse("2018-10-14T00:03:15.144Z");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // truncate fires no delete trigger
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes, earthquake_rollups_hourly, earthquake_rollups_daily, earthquake_rollups_pending");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @Test
+    void rollsUpTheChunkPerHourAndDayInUtc() throws Exception {
+        // arrange
+        ItemWriter<AnalyticsEarthquake> writer = writer(new ItemWriterConfig().itemWriter(dataSource));
+
+        // act
+        writer.write(Chunk.of(
+            earthquake("ci1", "2018-10-13T23:10:00Z", "2.0", "US", false),
+            earthquake("ci2", "2018-10-13T23:50:00Z", null, "US", true),
+            earthquake("ci3", "2018-10-14T00:20:00Z", "4.0", "US", false),
+            earthquake("us1", "2018-10-13T23:30:00Z", "5.5", "Japan", true)
+        ));
+
+        // assert
+        assertThat(rollup("earthquake_rollups_hourly", "2018-10-13T23:00:00Z", "US"))
+            .containsEntry("earthquake_count", 2L)
+            .containsEntry("magnitude_count", 1L)
+            .containsEntry("tsunami_count", 1L);
+        assertThat(rollup("earthquake_rollups_daily", "2018-10-13T00:00:00Z", "US"))
+            .containsEntry("earthquake_count", 2L);
+        assertThat(rollup("earthquake_rollups_daily", "2018-10-14T00:00:00Z", "US"))
+            .containsEntry("earthquake_count", 1L)
+            .containsEntry("max_magnitude", new BigDecimal("4.0"));
+        assertThat(rollup("earthquake_rollups_daily", "2018-10-13T00:00:00Z", "Japan"))
+            .containsEntry("magnitude_sum", new BigDecimal("5.5"));
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquake_rollups_pending")).isZero();
+    }
+
+    @Test
+    void recomputesTheBucketsOfReplayedAndMovedEvents() throws Exception {
+        // arrange
+        ItemWriter<AnalyticsEarthquake> writer = writer(new UpsertItemWriter(dataSource, transactionManager, 1000, 0.01));
+        Chunk<AnalyticsEarthquake> chunk = Chunk.of(
+            earthquake("ci1", "2018-10-13T10:15:00Z", "2.0", "US", false),
+            earthquake("ci2", "2018-10-13T10:45:00Z", "3.0", "US", false)
+        );
+        writer.write(chunk);
+
+        // act: the same chunk replayed, then a revision moving ci2 to the next hour
+        writer.write(chunk);
+        writer.write(Chunk.of(
+            earthquake("ci2", "2018-10-13T11:05:00Z", "3.0", "US", false, UPDATED.plusSeconds(60))
+        ));
+
+        // assert
+        assertThat(rollup("earthquake_rollups_hourly", "2018-10-13T10:00:00Z", "US"))
+            .containsEntry("earthquake_count", 1L)
+            .containsEntry("max_magnitude", new BigDecimal("2.0"));
+        assertThat(rollup("earthquake_rollups_hourly", "2018-10-13T11:00:00Z", "US"))
+            .containsEntry("earthquake_count", 1L);
+        assertThat(rollup("earthquake_rollups_daily", "2018-10-13T00:00:00Z", "US"))
+            .containsEntry("earthquake_count", 2L)
+            .containsEntry("magnitude_sum", new BigDecimal("5.0"));
+    }
+
+    @Test
+    void dropsTheRollupsOfDroppedPartitions() throws Exception {
+        // arrange
+        writer(new ItemWriterConfig().itemWriter(dataSource)).write(Chunk.of(
+            earthquake("ci1", "2017-01-10T00:00:00Z", "2.0", "US", false),
+            earthquake("ci2", "2017-02-10T00:00:00Z", "2.0", "US", false)
+        ));
+
+        // act
+        jdbcTemplate.queryForList("SELECT drop_earthquakes_partitions_before('2017-02-01T00:00:00Z')", String.class);
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquake_rollups_hourly")).isEqualTo(1);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquake_rollups_daily")).isEqualTo(1);
+    }
+
+    // the writers as the worker step chains them
+    private ItemWriter<AnalyticsEarthquake> writer(ItemWriter<AnalyticsEarthquake> delegate) {
+        return new MonthlyPartitionItemWriter(new RollupItemWriter<>(delegate, dataSource, transactionManager),
+            dataSource, transactionManager);
+    }
+
+    private Map<String, Object> rollup(String table, String bucket, String country) {
+        return jdbcTemplate.queryForMap("SELECT * FROM " + table + " WHERE bucket = ?::timestamptz AND country = ?",
+            bucket, country);
+    }
+
+    private static AnalyticsEarthquake earthquake(String eventId, String time, String magnitude, String country, boolean tsunami) {
+        return earthquake(eventId, time, magnitude, country, tsunami, UPDATED);
+    }
+
+    private static AnalyticsEarthquake earthquake(String eventId, String time, String magnitude, String country,
+                                                  boolean tsunami, Instant updated) {
+        return new AnalyticsEarthquake(Instant.parse(time), magnitude == null ? null : new BigDecimal(magnitude),
+            "9km NE of Aguanga, CA", null, country, tsunami, 70, MagnitudeType.ml, EventType.Earthquake, 0, null, null,
+            null, ",ci,", eventId, updated);
+    }
+}
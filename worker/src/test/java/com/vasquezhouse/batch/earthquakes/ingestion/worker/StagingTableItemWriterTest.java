@@ -0,0 +1,94 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemWriterConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.StagingTableItemWriter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class StagingTableItemWriterTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private String stagingTable;
+    private JobExecution jobExecution;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+
+        // created by the manager before the partitions are published
+        jobExecution = MetaDataInstanceFactory.createJobExecution();
+        stagingTable = StagingTableItemWriter.tableName(jobExecution.getJobInstance().getInstanceId());
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + stagingTable);
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE " + stagingTable + " AS SELECT time, magnitude, place, state, " +
+            "country, tsunami, significance, mag_type, event_type, felt_reports, cdi, mmi, alert_level, source_id, " +
+            "event_id, source_updated_at FROM earthquakes WITH NO DATA");
+    }
+
+    @Test
+    void writesToTheStagingTableOfTheJob() throws Exception {
+        // arrange
+        Instant time = Instant.parse("2018-10-13T23:59:28.010Z");
+        AnalyticsEarthquake earthquake = new AnalyticsEarthquake(time, BigDecimal.valueOf(4.2), "9km NE of Aguanga, CA",
+            "CA", "US", false, 300, MagnitudeType.ml, EventType.Earthquake, 3, null, null, null,
+            ",ci,", "ci12345", time);
+        StagingTableItemWriter writer = new ItemWriterConfig().stagingTableItemWriter(dataSource);
+
+        // act
+        StepSynchronizationManager.register(new StepExecution("workerStep:partition0", jobExecution, 1L));
+        try {
+            writer.write(Chunk.of(earthquake, earthquake));
+        } finally {
+            StepSynchronizationManager.close();
+        }
+
+        // assert: duplicates are only removed by the merge
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, stagingTable)).isEqualTo(2);
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT place FROM " + stagingTable + " LIMIT 1", String.class))
+            .isEqualTo("9km NE of Aguanga, CA");
+    }
+}
@@ -0,0 +1,86 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.step.ThrottledCheckpointJobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.ResourcelessJobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThrottledCheckpointJobRepositoryTest {
+
+    private final List<Long> chunkCheckpoints = new ArrayList<>();
+    private final List<BatchStatus> otherUpdates = new ArrayList<>();
+
+    // keeps the read count of every step execution saved in a chunk transaction
+    private final ResourcelessJobRepository delegate = new ResourcelessJobRepository() {
+        @Override
+        public void update(StepExecution stepExecution) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                chunkCheckpoints.add(stepExecution.getReadCount());
+            } else {
+                otherUpdates.add(stepExecution.getStatus());
+            }
+            super.update(stepExecution);
+        }
+    };
+
+    @Test
+    void savesEveryChunkByDefault() throws Exception {
+        // act
+        StepExecution stepExecution = run(delegate);
+
+        // assert
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(chunkCheckpoints).hasSize(20);
+    }
+
+    @Test
+    void savesOnlyEveryFewChunks() throws Exception {
+        // act
+        StepExecution stepExecution = run(new ThrottledCheckpointJobRepository(delegate, 10, Duration.ofHours(1)));
+
+        // assert: 19 chunks of 5 items and the empty last one, checkpoints after the 10th and 20th
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(stepExecution.getReadCount()).isEqualTo(95);
+        assertThat(chunkCheckpoints).containsExactly(50L, 95L);
+        assertThat(otherUpdates).endsWith(BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void savesAfterTheIntervalEvenBeforeEnoughChunks() throws Exception {
+        // act
+        run(new ThrottledCheckpointJobRepository(delegate, 1000, Duration.ofNanos(1)));
+
+        // assert
+        assertThat(chunkCheckpoints).hasSize(20);
+    }
+
+    private StepExecution run(JobRepository jobRepository) throws Exception {
+        Step step = new StepBuilder("workerStep", jobRepository)
+            .<Integer, Integer>chunk(5, new ResourcelessTransactionManager())
+            .reader(new ListItemReader<>(IntStream.range(0, 95).boxed().toList()))
+            .writer(chunk -> {
+            })
+            .build();
+
+        JobExecution jobExecution = jobRepository.createJobExecution("ingestionJob", new JobParameters());
+        StepExecution stepExecution = new StepExecution("workerStep", jobExecution, 1L);
+        step.execute(stepExecution);
+        return stepExecution;
+    }
+}
@@ -0,0 +1,177 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemWriterConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AlertLevel;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.AnalyticsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.EventType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.MagnitudeType;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.writer.UpsertItemWriter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+public class UpsertItemWriterTest {
+
+    private static final Instant UPDATED = Instant.parse("2018-10-14T00:03:15.144Z");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+        .withDatabaseName("test-analytics")
+        .withUsername("test-username")
+        .withPassword("test-password");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource driverManagerDataSource = new DriverManagerDataSource();
+        driverManagerDataSource.setDriverClassName(postgres.getDriverClassName());
+        driverManagerDataSource.setUrl(postgres.getJdbcUrl());
+        driverManagerDataSource.setUsername(postgres.getUsername());
+        driverManagerDataSource.setPassword(postgres.getPassword());
+        dataSource = driverManagerDataSource;
+
+        Flyway
+            .configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration/analytics")
+            .load()
+            .migrate();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("TRUNCATE TABLE earthquakes");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @Test
+    void keepsNewestRevisionOfEachEvent() {
+        // arrange
+        write(createWriter(), List.of(
+            earthquake("ci37389218", BigDecimal.valueOf(1.4), UPDATED),
+            earthquake("ci37389202", BigDecimal.valueOf(1.3), UPDATED)
+        ));
+
+        // act: a new job re-ingests both events, only the first one was revised by USGS
+        write(createWriter(), List.of(
+            earthquake("ci37389218", BigDecimal.valueOf(1.6), UPDATED.plusSeconds(60)),
+            earthquake("ci37389202", BigDecimal.valueOf(9.9), UPDATED.minusSeconds(60)),
+            earthquake("ci37389194", BigDecimal.valueOf(3.4), UPDATED)
+        ));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(3);
+        assertThat(magnitudeOf("ci37389218")).isEqualTo(BigDecimal.valueOf(1.6));
+        assertThat(magnitudeOf("ci37389202")).isEqualTo(BigDecimal.valueOf(1.3));
+        assertThat(magnitudeOf("ci37389194")).isEqualTo(BigDecimal.valueOf(3.4));
+    }
+
+    @Test
+    void upsertsEventsRepeatedInTheSameChunk() {
+        // act
+        write(createWriter(), List.of(
+            earthquake("ci37389218", BigDecimal.valueOf(1.4), UPDATED),
+            earthquake("ci37389218", BigDecimal.valueOf(1.6), UPDATED.plusSeconds(60))
+        ));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(1);
+        assertThat(magnitudeOf("ci37389218")).isEqualTo(BigDecimal.valueOf(1.6));
+    }
+
+    @Test
+    void fallsBackToUpsertWhenAnotherWriterInsertedTheEvent() {
+        // arrange: both writers seed their filters before either writes
+        UpsertItemWriter first = createWriter();
+        UpsertItemWriter second = createWriter();
+        write(first, List.of(earthquake("ci37389218", BigDecimal.valueOf(1.4), UPDATED)));
+
+        // act
+        write(second, List.of(
+            earthquake("ci37389202", BigDecimal.valueOf(1.3), UPDATED),
+            earthquake("ci37389218", BigDecimal.valueOf(1.6), UPDATED.plusSeconds(60))
+        ));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(2);
+        assertThat(magnitudeOf("ci37389218")).isEqualTo(BigDecimal.valueOf(1.6));
+    }
+
+    @Test
+    void deletesOlderRevisionsMissedByTheFilters() {
+        // arrange: two workers seed their filters before either writes, their files hold revisions at different times
+        Instant time = Instant.parse("2018-10-13T23:59:28.010Z");
+        UpsertItemWriter first = createWriter();
+        UpsertItemWriter second = createWriter();
+        UpsertItemWriter third = createWriter();
+        write(first, List.of(earthquake("ci37389218", time, BigDecimal.valueOf(1.4), UPDATED)));
+
+        // act: both filters miss, the newer revision is inserted then the older one arrives
+        write(second, List.of(earthquake("ci37389218", time.plusSeconds(2), BigDecimal.valueOf(1.6), UPDATED.plusSeconds(60))));
+        write(third, List.of(earthquake("ci37389218", time.minusSeconds(2), BigDecimal.valueOf(1.2), UPDATED.minusSeconds(60))));
+
+        // assert
+        assertThat(JdbcTestUtils.countRowsInTable(jdbcTemplate, "earthquakes")).isEqualTo(1);
+        assertThat(magnitudeOf("ci37389218")).isEqualTo(BigDecimal.valueOf(1.6));
+    }
+
+    // every writer seeds its filter before the step starts, as for a new job
+    private UpsertItemWriter createWriter() {
+        UpsertItemWriter writer = new ItemWriterConfig().upsertItemWriter(dataSource, transactionManager);
+        writer.beforeStep(MetaDataInstanceFactory.createStepExecution());
+        return writer;
+    }
+
+    // every chunk is written in its own transaction, as the step does
+    private void write(UpsertItemWriter writer, List<AnalyticsEarthquake> earthquakes) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> writer.write(new Chunk<>(earthquakes)));
+    }
+
+    private BigDecimal magnitudeOf(String eventId) {
+        return jdbcTemplate.queryForObject("SELECT magnitude FROM earthquakes WHERE event_id = ?", BigDecimal.class, eventId);
+    }
+
+    private static AnalyticsEarthquake earthquake(String eventId, BigDecimal magnitude, Instant updated) {
+        return earthquake(eventId, Instant.parse("2018-10-13T23:59:28.010Z"), magnitude, updated);
+    }
+
+    private static AnalyticsEarthquake earthquake(String eventId, Instant time, BigDecimal magnitude, Instant updated) {
+        return new AnalyticsEarthquake(
+            time,
+            magnitude,
+            "9km NE of Aguanga, CA",
+            "CA",
+            "US",
+            false,
+            28,
+            MagnitudeType.ml,
+            EventType.Earthquake,
+            null,
+            null,
+            null,
+            AlertLevel.Green,
+            ",ci,",
+            eventId,
+            updated
+        );
+    }
+}
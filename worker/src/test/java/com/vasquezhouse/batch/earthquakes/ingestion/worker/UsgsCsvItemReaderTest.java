@@ -0,0 +1,191 @@
+package com.vasquezhouse.batch.earthquakes.ingestion.worker;
+
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.configuration.ItemReaderConfig;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.domain.UsgsEarthquake;
+import com.vasquezhouse.batch.earthquakes.ingestion.worker.reader.UsgsCsvItemReader;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UsgsCsvItemReaderTest {
+
+    private static final String HEADER = "alert,cdi,code,detail,dmin,felt,gap,ids,mag,magType,mmi,net,nst,place,rms,sig,sources,status,time,title,tsunami,type,types,tz,updated,url\n";
+    private static final String LINE_1 = ",,37389218,https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=ci37389218&format=geojson,0.008693,,85.0,\",ci37389218,\",1.35,ml,,ci,26.0,\"9km NE of Aguanga, CA\",0.19,28,\",ci,\",automatic,1539475168010,\"M 1.4 - 9km NE of Aguanga, CA\",0,earthquake,\",geoserve,nearby-cities,origin,phase-data,\",-480.0,1539475395144,https://earthquake.usgs.gov/earthquakes/eventpage/ci37389218\n";
+    private static final String LINE_2 = "green,4.4,37389194,https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=ci37389194&format=geojson,0.02137,28.0,21.0,\",ci37389194,\",3.42,ml,3.1,ci,111.0,\"8km NE of Aguanga, CA\",0.22,192,\",ci,\",automatic,1539475062610,\"M 3.4 - 8km NE of Aguanga, CA\",1,earthquake,\",dyfi,focal-mechanism,geoserve,nearby-cities,origin,phase-data,\",-480.0,1539536756176,https://earthquake.usgs.gov/earthquakes/eventpage/ci37389194\n";
+    private static final String LINE_3 = ",,37389202,https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=ci37389202&format=geojson,0.02003,,79.0,\",ci37389202,\",1.29,ml,,ci,20.0,\"9km NE of Aguanga, CA\",0.29,26,\",ci,\",automatic,1539475129610,\"M 1.3 - 9km NE of Aguanga, CA\",0,earthquake,\",geoserve,nearby-cities,origin,phase-data,\",-480.0,1539475253925,https://earthquake.usgs.gov/earthquakes/eventpage/ci37389202\n";
+
+    @TempDir
+    Path tempDir;
+
+    @SneakyThrows
+    @Test
+    void readsSameItemsAsFlatFileReader() {
+        // arrange
+        String csvContent = HEADER + LINE_1 + LINE_2 + LINE_3;
+        Path file = writeFile(csvContent);
+
+        ItemStreamReader<UsgsEarthquake> flatFileReader = new ItemReaderConfig().itemReader(file.toString(), null, null);
+        flatFileReader.open(new ExecutionContext());
+
+        // small buffer to force refills and growth in the middle of records
+        UsgsCsvItemReader nioReader = createItemReader(file, 64);
+        nioReader.open(new ExecutionContext());
+
+        // act
+        List<UsgsEarthquake> expected = readAll(flatFileReader);
+        List<UsgsEarthquake> actual = readAll(nioReader);
+
+        // assert
+        assertThat(actual).hasSize(3);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.get(1).getMagnitude()).isEqualTo(new BigDecimal("3.42"));
+        assertThat(actual.get(1).getPlace()).isEqualTo("8km NE of Aguanga, CA");
+    }
+
+    @SneakyThrows
+    @Test
+    void readsQuotedLineBreaksAndEscapedQuotes() {
+        // arrange
+        String line = LINE_1
+            .replace("\n", "\r\n")
+            .replace("\"9km NE of Aguanga, CA\"", "\"9km NE of \"\"Aguanga\"\",\r\nCA\"");
+        Path file = writeFile(HEADER + line + LINE_2);
+
+        UsgsCsvItemReader reader = createItemReader(file, 16);
+        reader.open(new ExecutionContext());
+
+        // act
+        List<UsgsEarthquake> earthquakes = readAll(reader);
+
+        // assert
+        assertThat(earthquakes).hasSize(2);
+        assertThat(earthquakes.get(0).getPlace()).isEqualTo("9km NE of \"Aguanga\",\r\nCA");
+        assertThat(earthquakes.get(1).getSourceId()).isEqualTo(",ci,");
+    }
+
+    @SneakyThrows
+    @Test
+    void keepsSourceLinesLikeFlatFileReader() {
+        // arrange
+        Path file = writeFile(HEADER + LINE_1.replace("\n", "\r\n") + LINE_2);
+
+        ItemStreamReader<UsgsEarthquake> flatFileReader = new ItemReaderConfig().itemReader(file.toString(), null, null);
+        flatFileReader.open(new ExecutionContext());
+        UsgsCsvItemReader nioReader = createItemReader(file, 1024);
+        nioReader.setKeepRawLine(true);
+        nioReader.open(new ExecutionContext());
+
+        // act
+        List<UsgsEarthquake> expected = readAll(flatFileReader);
+        List<UsgsEarthquake> actual = readAll(nioReader);
+
+        // assert
+        assertThat(actual).extracting(UsgsEarthquake::getLineNumber).containsExactly(2, 3);
+        assertThat(actual).extracting(UsgsEarthquake::getRawLine).containsExactly(LINE_1.strip(), LINE_2.strip());
+        assertThat(expected).extracting(UsgsEarthquake::getLineNumber).containsExactly(2, 3);
+        assertThat(expected).extracting(UsgsEarthquake::getRawLine).containsExactly(LINE_1.strip(), LINE_2.strip());
+    }
+
+    @SneakyThrows
+    @Test
+    void restartsFromSavedOffset() {
+        // arrange
+        Path file = writeFile(HEADER + LINE_1 + LINE_2 + LINE_3);
+        ExecutionContext executionContext = new ExecutionContext();
+
+        UsgsCsvItemReader reader = createItemReader(file, 1024);
+        reader.open(executionContext);
+        reader.read();
+        reader.update(executionContext);
+        reader.close();
+
+        // act
+        UsgsCsvItemReader restartedReader = createItemReader(file, 1024);
+        restartedReader.open(executionContext);
+        List<UsgsEarthquake> earthquakes = readAll(restartedReader);
+
+        // assert
+        assertThat(earthquakes).hasSize(2);
+        assertThat(earthquakes.get(0).getTime()).isEqualTo(1539475062610L);
+        assertThat(earthquakes.get(1).getTime()).isEqualTo(1539475129610L);
+    }
+
+    @SneakyThrows
+    @Test
+    void failsWhenMissingField() {
+        // arrange
+        Path file = writeFile(HEADER + LINE_1 + LINE_3.replaceFirst(",37389202", ""));
+
+        UsgsCsvItemReader reader = createItemReader(file, 1024);
+        reader.open(new ExecutionContext());
+        reader.read();
+
+        // act/assert
+        assertThatThrownBy(reader::read)
+            .isInstanceOf(FlatFileParseException.class)
+            .hasMessageContaining("Incorrect number of fields at line: 3");
+        reader.close();
+    }
+
+    @SneakyThrows
+    @Test
+    void readsOnlyItsByteRange() {
+        // arrange
+        String csvContent = HEADER + LINE_1 + LINE_2 + LINE_3;
+        Path file = writeFile(csvContent);
+        long split = (HEADER + LINE_1).getBytes(StandardCharsets.UTF_8).length;
+        long size = csvContent.getBytes(StandardCharsets.UTF_8).length;
+
+        UsgsCsvItemReader firstRange = new ItemReaderConfig().nioItemReader(file.toString(), 0L, split);
+        firstRange.open(new ExecutionContext());
+        UsgsCsvItemReader secondRange = new ItemReaderConfig().nioItemReader(file.toString(), split, size);
+        secondRange.open(new ExecutionContext());
+        ItemStreamReader<UsgsEarthquake> flatFileSecondRange = new ItemReaderConfig().itemReader(file.toString(), split, size);
+        flatFileSecondRange.open(new ExecutionContext());
+
+        // act
+        List<UsgsEarthquake> firstEarthquakes = readAll(firstRange);
+        List<UsgsEarthquake> secondEarthquakes = readAll(secondRange);
+        List<UsgsEarthquake> flatFileSecondEarthquakes = readAll(flatFileSecondRange);
+
+        // assert
+        assertThat(firstEarthquakes).extracting(UsgsEarthquake::getTime).containsExactly(1539475168010L);
+        assertThat(secondEarthquakes).extracting(UsgsEarthquake::getTime).containsExactly(1539475062610L, 1539475129610L);
+        assertThat(flatFileSecondEarthquakes).isEqualTo(secondEarthquakes);
+    }
+
+    private Path writeFile(String csvContent) throws Exception {
+        Path file = tempDir.resolve("test-earthquakes.csv");
+        Files.writeString(file, csvContent);
+        return file;
+    }
+
+    private static UsgsCsvItemReader createItemReader(Path file, int bufferSize) {
+        UsgsCsvItemReader reader = new ItemReaderConfig().nioItemReader(file.toString(), null, null);
+        reader.setBufferSize(bufferSize);
+        return reader;
+    }
+
+    private static List<UsgsEarthquake> readAll(ItemStreamReader<UsgsEarthquake> reader) throws Exception {
+        List<UsgsEarthquake> earthquakes = new ArrayList<>();
+        UsgsEarthquake earthquake;
+        while ((earthquake = reader.read()) != null) {
+            earthquakes.add(earthquake);
+        }
+        reader.close();
+        return earthquakes;
+    }
+}